@@ -0,0 +1,50 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of the benchmark jar.
+ *
+ * @implNote Accepts the regular JMH command line options, but unless told otherwise always attaches the gc profiler
+ * and writes a timestamped JSON report into results/, so that the reports of different builds can be compared.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+                || commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLineOptions);
+
+        // Only add the gc profiler if it wasn't already requested, otherwise it would run twice.
+        boolean hasGcProfiler = commandLineOptions.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals("gc")
+                        || profiler.getKlass().equals(GCProfiler.class.getName()));
+        if (!hasGcProfiler)
+            options.addProfiler(GCProfiler.class);
+
+        if (!commandLineOptions.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!commandLineOptions.getResult().hasValue()) {
+            File results = new File("results");
+            if (!results.isDirectory() && !results.mkdirs())
+                throw new IllegalStateException("Unable to create " + results.getAbsolutePath());
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result(new File(results, "jmh-" + timestamp + ".json").getPath());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
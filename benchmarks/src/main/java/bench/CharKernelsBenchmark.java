@@ -0,0 +1,68 @@
+package bench;
+
+import main.StringTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations with vectorized inner loops, with the Vector API kernels against the scalar ones.
+ *
+ * @implNote The forked JVM always has the Vector API module, and the vector parameter decides through the
+ * stringtools.vector system property whether the kernels are used. Since the kernels are picked once per JVM, every
+ * value of the parameter needs a fork of its own, which JMH gives it anyway.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+public class CharKernelsBenchmark {
+    private static final long SEED = 233;
+
+    @Param({"1000", "100000", "10485760"})
+    public int length;
+
+    @Param({"true", "false"})
+    public boolean vector;
+
+    private String sentence;
+    private String palindrome;
+    private String anagram;
+    private String substring;
+
+    @Setup
+    public void setup() {
+        System.setProperty("stringtools.vector", Boolean.toString(vector));
+        sentence = Corpus.ASCII.sentence(length, SEED);
+        palindrome = Corpus.ASCII.palindrome(length, SEED).replace(" ", "");
+        anagram = Corpus.shuffle(sentence, SEED);
+        substring = Corpus.ASCII.sentence(3, SEED + 1);
+    }
+
+    @Benchmark
+    public boolean isPalindrome() {
+        return StringTools.isPalindrome(palindrome);
+    }
+
+    @Benchmark
+    public boolean anagramChecker() {
+        return StringTools.anagramChecker(sentence, anagram);
+    }
+
+    @Benchmark
+    public int occurrenceCounter() {
+        return StringTools.occurrenceCounter(sentence, substring);
+    }
+}
@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * The character sets that benchmark inputs are generated from.
+ */
+public enum Corpus {
+    ASCII("abcdefghijklmnopqrstuvwxyz"),
+    LATIN1("abcdefghijklmnopqrstuvwxyzßàáâãäåæçèéêëìíîïðñòóôõöøùúûüýþÿ"),
+    UNICODE("abcdefghijklmnopqrstuvwxyzàéöαβγδεζηθλπωабвгдежзий日本語中文字한국어😀🚀𝒜");
+
+    private final int[] alphabet;
+
+    Corpus(String alphabet) {
+        this.alphabet = alphabet.codePoints().toArray();
+    }
+
+    /**
+     * Generate a sentence of words drawn from this corpus.
+     *
+     * @implNote Words are separated by exactly one space and the sentence never starts or ends with a space, so the
+     * output is always a valid input for StringTools.sentenceReversal.
+     * @param length The length of the sentence, in chars.
+     * @param seed The seed for the random number generator, so that runs are reproducible.
+     * @return The generated sentence.
+     */
+    public String sentence(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sentence = new StringBuilder(length);
+        int wordLength = 0;
+        while (sentence.length() < length) {
+            int remaining = length - sentence.length();
+
+            // End the current word every few chars, but never with a trailing space or with two spaces in a row.
+            if (wordLength > 0 && remaining > 1 && random.nextInt(6) == 0) {
+                sentence.append(' ');
+                wordLength = 0;
+                continue;
+            }
+
+            int codePoint = alphabet[random.nextInt(alphabet.length)];
+            if (Character.charCount(codePoint) > remaining)
+                codePoint = alphabet[0];
+            sentence.appendCodePoint(codePoint);
+            wordLength++;
+        }
+        return sentence.toString();
+    }
+
+    /**
+     * Generate a palindrome drawn from this corpus.
+     *
+     * @implNote The palindrome is mirrored char by char (not code point by code point), as that is what the palindrome
+     * checkers compare. This makes it a worst case input, since every char has to be checked.
+     * @param length The length of the palindrome, in chars.
+     * @param seed The seed for the random number generator.
+     * @return The generated palindrome.
+     */
+    public String palindrome(int length, long seed) {
+        char[] chars = new char[length];
+        sentence((length + 1) / 2, seed).getChars(0, (length + 1) / 2, chars, 0);
+        for (int i = 0; i < length / 2; i++)
+            chars[length - 1 - i] = chars[i];
+        return new String(chars);
+    }
+
+    /**
+     * Shuffle the chars of a string, producing an anagram of it.
+     *
+     * @param input The string to shuffle.
+     * @param seed The seed for the random number generator.
+     * @return An anagram of the input.
+     */
+    public static String shuffle(String input, long seed) {
+        Random random = new Random(seed);
+        char[] chars = input.toCharArray();
+        for (int i = chars.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char temp = chars[i];
+            chars[i] = chars[j];
+            chars[j] = temp;
+        }
+        return new String(chars);
+    }
+}
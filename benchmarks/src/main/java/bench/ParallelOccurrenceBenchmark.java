@@ -0,0 +1,58 @@
+package bench;
+
+import main.StringTools;
+import main.SubstringPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against parallel occurrence counting, around SubstringPattern.PARALLEL_THRESHOLD.
+ *
+ * @implNote The threshold should be the smallest length at which parallel counting wins on the target machine. The
+ * threshold is disabled in the forked JVM, so that the parallel benchmark always takes the chunked path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dstringtools.parallelThreshold=0"})
+public class ParallelOccurrenceBenchmark {
+    private static final long SEED = 233;
+
+    @Param({"65536", "262144", "1048576", "4194304", "16777216"})
+    public int length;
+
+    @Param({"OVERLAPPING", "NON_OVERLAPPING"})
+    public StringTools.OccurrenceMode mode;
+
+    private String sentence;
+    private SubstringPattern pattern;
+
+    @Setup
+    public void setup() {
+        sentence = Corpus.ASCII.sentence(length, SEED);
+        pattern = SubstringPattern.compile(Corpus.ASCII.sentence(3, SEED + 1));
+    }
+
+    @Benchmark
+    public int sequential() {
+        return pattern.count(sentence, mode);
+    }
+
+    @Benchmark
+    public int parallel() {
+        return pattern.parallelCount(sentence, mode);
+    }
+}
@@ -0,0 +1,138 @@
+package bench;
+
+import main.MultiSubstringPattern;
+import main.StringTools;
+import main.SubstringPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks for every public operation of StringTools.
+ *
+ * @implNote Throughput and SampleTime are both measured, the latter giving the latency percentiles. Run through
+ * BenchmarkRunner to also get the allocation rate from the gc profiler and a JSON report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StringToolsBenchmark {
+    private static final long SEED = 233;
+
+    /**
+     * Input length in chars, from 10 chars up to 10 MiB.
+     */
+    @Param({"10", "1000", "100000", "10485760"})
+    public int length;
+
+    @Param({"ASCII", "LATIN1", "UNICODE"})
+    public Corpus corpus;
+
+    private String sentence;
+    private String palindrome;
+    private String anagram;
+    private List<String> words;
+    private String substring;
+    private SubstringPattern pattern;
+    private MultiSubstringPattern keywords;
+    private int index;
+
+    @Setup
+    public void setup() {
+        sentence = corpus.sentence(length, SEED);
+        palindrome = corpus.palindrome(length, SEED);
+        anagram = Corpus.shuffle(sentence, SEED);
+        words = Arrays.asList(sentence.split(" "));
+        substring = corpus.sentence(Math.min(3, length), SEED + 1);
+        pattern = SubstringPattern.compile(substring);
+        keywords = MultiSubstringPattern.compile(words.stream().distinct().limit(2_000).collect(Collectors.toList()));
+        index = length / 2;
+    }
+
+    @Benchmark
+    public boolean palindromeIterative() {
+        return StringTools.palindromeIterative(palindrome);
+    }
+
+    @Benchmark
+    public boolean isPalindrome() {
+        return StringTools.isPalindrome(palindrome);
+    }
+
+    @Benchmark
+    public boolean palindromeRecursive() {
+        return StringTools.palindromeRecursive(palindrome);
+    }
+
+    @Benchmark
+    public String longestPalindrome() {
+        return StringTools.longestPalindrome(sentence);
+    }
+
+    @Benchmark
+    public long palindromeCount() {
+        return StringTools.palindromeCount(sentence);
+    }
+
+    @Benchmark
+    public boolean anagramChecker() {
+        return StringTools.anagramChecker(sentence, anagram);
+    }
+
+    @Benchmark
+    public void anagramOccurrences(Blackhole blackhole) {
+        StringTools.anagramOccurrences(sentence, substring, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<List<String>> anagramGroups() {
+        return StringTools.anagramGroups(words);
+    }
+
+    @Benchmark
+    public String addSubstring() {
+        return StringTools.addSubstring(sentence, substring, index);
+    }
+
+    @Benchmark
+    public int occurrenceCounter() {
+        return StringTools.occurrenceCounter(sentence, substring);
+    }
+
+    @Benchmark
+    public int occurrenceCounterOverlapping() {
+        return StringTools.occurrenceCounter(sentence, substring, StringTools.OccurrenceMode.OVERLAPPING);
+    }
+
+    @Benchmark
+    public int compiledPatternCount() {
+        return pattern.count(sentence);
+    }
+
+    @Benchmark
+    public int[] multiOccurrenceCounter() {
+        return keywords.count(sentence);
+    }
+
+    @Benchmark
+    public String sentenceReversal() throws StringTools.InvalidSentenceException {
+        return StringTools.sentenceReversal(sentence);
+    }
+}
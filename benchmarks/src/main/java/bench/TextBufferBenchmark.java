@@ -0,0 +1,84 @@
+package bench;
+
+import main.StringTools;
+import main.TextBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many insertions into the same document: an editing session with addSubstring against TextBuffer, and a batch of
+ * insertions relative to the original document with addSubstrings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TextBufferBenchmark {
+    private static final long SEED = 233;
+
+    @Param({"1000", "100000", "1048576"})
+    public int length;
+
+    @Param({"1000"})
+    public int edits;
+
+    private String document;
+    private String[] substrings;
+    private int[] indices;
+    private List<StringTools.Insertion> batch;
+
+    @Setup
+    public void setup() {
+        document = Corpus.ASCII.sentence(length, SEED);
+        substrings = new String[edits];
+        indices = new int[edits];
+        Random random = new Random(SEED);
+        int documentLength = length;
+        for (int edit = 0; edit < edits; edit++) {
+            substrings[edit] = Corpus.ASCII.sentence(1 + random.nextInt(8), SEED + edit);
+            indices[edit] = random.nextInt(documentLength + 1);
+            documentLength += substrings[edit].length();
+        }
+
+        batch = new ArrayList<>(edits);
+        for (int edit = 0; edit < edits; edit++)
+            batch.add(new StringTools.Insertion(random.nextInt(length + 1), substrings[edit]));
+    }
+
+    @Benchmark
+    public String addSubstring() {
+        String text = document;
+        for (int edit = 0; edit < edits; edit++)
+            text = StringTools.addSubstring(text, substrings[edit], indices[edit]);
+        return text;
+    }
+
+    @Benchmark
+    public String textBuffer() {
+        TextBuffer text = new TextBuffer(document);
+        for (int edit = 0; edit < edits; edit++)
+            text.addSubstring(substrings[edit], indices[edit]);
+        return text.toString();
+    }
+
+    @Benchmark
+    public String addSubstrings() {
+        return StringTools.addSubstrings(document, batch);
+    }
+}
@@ -0,0 +1,365 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Runs StringTools operations non-interactively, on jobs read one per line.
+ *
+ * <p>A job is the name of an operation followed by its arguments, separated by tabs, such as
+ * {@code occurrenceCounter<TAB>banana<TAB>an}. Every public StringTools method whose parameters are strings, ints or
+ * enums can be run, and overloads are told apart by their number of arguments. Tabs, line breaks and backslashes inside
+ * arguments are written as {@code \t}, {@code \n}, {@code \r} and {@code \\}.
+ *
+ * <p>When several overloads take the same number of arguments, the one that is run is picked parameter by parameter,
+ * preferring String to CharSequence, CharSequence to int and int to enums, and enums by their fully qualified name, so
+ * that the choice doesn't depend on the order reflection lists the methods in.
+ *
+ * <p>Every job gives exactly one line of output, in the same order as the jobs: {@code OK<TAB>result} if the operation
+ * succeeded, or {@code ERR<TAB>exception<TAB>message} if it threw (for instance InvalidSentenceException or
+ * IndexOutOfBoundsException) or the job was malformed. Results and messages are escaped the same way as arguments, so
+ * they always fit on one line.
+ *
+ * @implNote The operations are looked up and bound to method handles once, when the runner is created. Jobs are read
+ * in batches, and the batches are run on a thread pool while later ones are being read; their results are written in
+ * order as soon as the batches before them are done. At most a few batches per thread are in flight at once, so memory
+ * stays bounded however many jobs there are. Every call is recorded in Metrics, unless they are disabled.
+ */
+public final class BatchRunner {
+    /**
+     * The number of jobs run together as one task.
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    private static final Comparator<Class<?>> PARAMETER_ORDER =
+            Comparator.<Class<?>>comparingInt(BatchRunner::parameterRank).thenComparing(Class::getName);
+
+    private final Map<String, Operation[]> operations = new HashMap<>();
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /**
+     * Create a runner that runs its jobs on the common fork-join pool.
+     */
+    public BatchRunner() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Create a runner.
+     *
+     * @param executor The executor to run the batches of jobs on.
+     * @param parallelism The number of threads of the executor, which decides how many batches are kept in flight.
+     */
+    public BatchRunner(ExecutorService executor, int parallelism) {
+        this(StringTools.class, executor, parallelism);
+    }
+
+    /**
+     * Create a runner for the operations of another class than StringTools.
+     *
+     * @param operations The public class whose public static methods are the operations.
+     * @param executor The executor to run the batches of jobs on.
+     * @param parallelism The number of threads of the executor, which decides how many batches are kept in flight.
+     */
+    public BatchRunner(Class<?> operations, ExecutorService executor, int parallelism) {
+        this.executor = executor;
+        this.maxInFlight = 4 * Math.max(parallelism, 1);
+
+        Map<String, Method[]> methods = new HashMap<>();
+        for (Method method : operations.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isStatic(method.getModifiers()))
+                continue;
+            if (!Arrays.stream(method.getParameterTypes()).allMatch(BatchRunner::isSupportedParameterType))
+                continue;
+
+            Method[] overloads = methods.computeIfAbsent(method.getName(), name -> new Method[0]);
+            int arity = method.getParameterCount();
+            if (overloads.length <= arity)
+                methods.put(method.getName(), overloads = Arrays.copyOf(overloads, arity + 1));
+            if (overloads[arity] == null || compareOverloads(method, overloads[arity]) < 0)
+                overloads[arity] = method;
+        }
+        methods.forEach((name, overloads) -> {
+            Operation[] bound = new Operation[overloads.length];
+            for (int arity = 0; arity < overloads.length; arity++)
+                if (overloads[arity] != null)
+                    bound[arity] = bind(overloads[arity]);
+            this.operations.put(name, bound);
+        });
+    }
+
+    /**
+     * Run every job of an input, writing one line of output for each of them.
+     *
+     * @throws IOException When reading the jobs or writing the results fails.
+     * @param jobs The jobs, one per line.
+     * @param results Where to write the results. It is flushed but not closed at the end.
+     */
+    public void run(Reader jobs, Writer results) throws IOException {
+        BufferedReader reader = jobs instanceof BufferedReader
+                ? (BufferedReader) jobs
+                : new BufferedReader(jobs, 1 << 16);
+        ArrayDeque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            batch.add(line);
+            if (batch.size() == BATCH_SIZE) {
+                submit(batch, inFlight);
+                batch = new ArrayList<>(BATCH_SIZE);
+                while (inFlight.size() >= maxInFlight)
+                    write(inFlight.poll(), results);
+            }
+        }
+        if (!batch.isEmpty())
+            submit(batch, inFlight);
+        while (!inFlight.isEmpty())
+            write(inFlight.poll(), results);
+        results.flush();
+    }
+
+    /**
+     * Run a single job.
+     *
+     * @param job The job: the name of an operation and its arguments, separated by tabs.
+     * @return The line of output for the job, without a line break.
+     */
+    public String execute(String job) {
+        List<String> fields = split(job);
+        String name = fields.get(0);
+        Operation[] overloads = operations.get(name);
+        int arity = fields.size() - 1;
+        if (overloads == null)
+            return error("UnknownOperation", "No operation named " + name + ".");
+        if (arity >= overloads.length || overloads[arity] == null)
+            return error("WrongArgumentCount", name + " doesn't take " + arity + " arguments.");
+
+        try {
+            return "OK\t" + escape(overloads[arity].apply(fields.subList(1, fields.size()).toArray(new String[0])));
+        }
+        catch (Exception e) {
+            // Report what the operation itself threw. Errors, such as OutOfMemoryError, are not ordinary failures of a
+            // job, so they are never caught.
+            Throwable cause = e;
+            boolean wrapper = e instanceof InvocationTargetException || e instanceof WrongMethodTypeException;
+            if (wrapper && e.getCause() != null)
+                cause = e.getCause();
+            if (cause instanceof Error)
+                throw (Error) cause;
+            return error(cause.getClass().getSimpleName(), cause.getMessage());
+        }
+    }
+
+    private void submit(List<String> batch, ArrayDeque<CompletableFuture<String>> inFlight) {
+        inFlight.add(CompletableFuture.supplyAsync(() -> {
+            StringBuilder output = new StringBuilder(batch.size() * 16);
+            for (String job : batch)
+                output.append(execute(job)).append('\n');
+            return output.toString();
+        }, executor));
+    }
+
+    private static void write(CompletableFuture<String> batch, Writer results) throws IOException {
+        results.write(batch.join());
+    }
+
+    private static String error(String type, String message) {
+        return message == null ? "ERR\t" + type : "ERR\t" + type + "\t" + escape(message);
+    }
+
+    /**
+     * Bind a StringTools method to an operation, converting its arguments from and its result to text.
+     *
+     * @param method The method, whose parameters must all be of supported types.
+     * @return The operation.
+     */
+    private static Operation bind(Method method) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Spread an array of arguments over the parameters, so that every operation can be invoked the same way.
+        MethodHandle spread = handle
+                .asType(MethodType.genericMethodType(method.getParameterCount()))
+                .asSpreader(Object[].class, method.getParameterCount());
+        Class<?>[] types = method.getParameterTypes();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Function<String, Object>[] parsers = new Function[types.length];
+        for (int i = 0; i < types.length; i++)
+            parsers[i] = parser(types[i]);
+        Function<Object, String> formatter = formatter(method.getReturnType());
+
+        if (!Metrics.ENABLED)
+            return arguments -> formatter.apply(invoke(spread, parse(parsers, arguments)));
+
+        // Only the call itself is timed, not the parsing of its arguments nor the formatting of its result.
+        OperationMetrics metrics = Metrics.operation(method.getName());
+        return arguments -> {
+            Object[] parsed = parse(parsers, arguments);
+            long inputSize = Metrics.inputSize(parsed);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(spread, parsed);
+            }
+            catch (Exception e) {
+                metrics.record(inputSize, System.nanoTime() - start, e);
+                throw e;
+            }
+            metrics.record(inputSize, System.nanoTime() - start);
+            return formatter.apply(result);
+        };
+    }
+
+    /**
+     * Invoke a spread method handle, letting Errors through but wrapping any other Throwable that isn't an Exception.
+     */
+    private static Object invoke(MethodHandle spread, Object[] arguments) throws Exception {
+        try {
+            return (Object) spread.invokeExact(arguments);
+        }
+        catch (Exception | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static Object[] parse(Function<String, Object>[] parsers, String[] arguments) {
+        Object[] parsed = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            parsed[i] = parsers[i].apply(arguments[i]);
+        return parsed;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<String, Object> parser(Class<?> type) {
+        if (type == int.class)
+            return Integer::valueOf;
+        if (type.isEnum())
+            return argument -> Enum.valueOf((Class) type, argument);
+        return argument -> argument;
+    }
+
+    private static Function<Object, String> formatter(Class<?> type) {
+        if (type == int[].class)
+            return result -> Arrays.toString((int[]) result);
+        return String::valueOf;
+    }
+
+    /**
+     * Compare overloads with the same number of parameters, the first one being the one to run.
+     */
+    private static int compareOverloads(Method first, Method second) {
+        Class<?>[] firstTypes = first.getParameterTypes();
+        Class<?>[] secondTypes = second.getParameterTypes();
+        for (int i = 0; i < firstTypes.length; i++) {
+            int order = PARAMETER_ORDER.compare(firstTypes[i], secondTypes[i]);
+            if (order != 0)
+                return order;
+        }
+        return 0;
+    }
+
+    private static int parameterRank(Class<?> type) {
+        if (type == String.class)
+            return 0;
+        if (type == CharSequence.class)
+            return 1;
+        return type == int.class ? 2 : 3;
+    }
+
+    private static boolean isSupportedParameterType(Class<?> type) {
+        return type == String.class || type == CharSequence.class || type == int.class || type.isEnum();
+    }
+
+    /**
+     * Split a job into its tab separated fields, unescaping them.
+     */
+    static List<String> split(String job) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < job.length(); i++) {
+            char character = job.charAt(i);
+            if (character == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if (character == '\\' && i + 1 < job.length()) {
+                char escaped = job.charAt(++i);
+                switch (escaped) {
+                    case 't': field.append('\t'); break;
+                    case 'n': field.append('\n'); break;
+                    case 'r': field.append('\r'); break;
+                    default: field.append(escaped);
+                }
+            }
+            else {
+                field.append(character);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Escape the tabs, line breaks and backslashes of a result so that it fits in a single field.
+     */
+    static String escape(String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            String replacement;
+            switch (character) {
+                case '\t': replacement = "\\t"; break;
+                case '\n': replacement = "\\n"; break;
+                case '\r': replacement = "\\r"; break;
+                case '\\': replacement = "\\\\"; break;
+                default: replacement = null;
+            }
+            if (replacement != null && escaped == null)
+                escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            if (escaped != null) {
+                if (replacement != null)
+                    escaped.append(replacement);
+                else
+                    escaped.append(character);
+            }
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+
+    /**
+     * A StringTools operation, bound to take its arguments and give its result as text.
+     */
+    @FunctionalInterface
+    private interface Operation {
+        String apply(String[] arguments) throws Exception;
+    }
+}
@@ -0,0 +1,195 @@
+package main;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable set of characters, such as the punctuation marks or word separators of a sentence.
+ *
+ * @implNote Chars of the Basic Multilingual Plane are kept in a bitset that is only as long as the largest of them
+ * requires, so looking one up is a shift and a mask. The rare supplementary code points are kept in a sorted array and
+ * binary searched. Nothing is boxed or allocated when looking chars up, and instances can be shared between threads.
+ */
+public final class CharClass {
+    /**
+     * The class without any characters.
+     */
+    public static final CharClass NONE = new CharClass(new long[0], new int[0]);
+
+    private final long[] bmp;
+    private final int[] supplementary;
+
+    // The ASCII chars of the class, for the vectorized kernels.
+    private final char[] ascii;
+
+    private CharClass(long[] bmp, int[] supplementary) {
+        this.bmp = bmp;
+        this.supplementary = supplementary;
+
+        StringBuilder ascii = new StringBuilder();
+        for (char character = 0; character < 128; character++)
+            if (contains(character))
+                ascii.append(character);
+        this.ascii = ascii.toString().toCharArray();
+    }
+
+    /**
+     * Create a class of the characters of a string.
+     *
+     * @param members The characters of the class. Surrogate pairs stand for their supplementary code point.
+     * @return The class.
+     */
+    public static CharClass of(CharSequence members) {
+        return ofCodePoints(members.codePoints().toArray());
+    }
+
+    /**
+     * Create a class of code points.
+     *
+     * @throws IllegalArgumentException When one of the code points is not a valid code point.
+     * @param codePoints The code points of the class.
+     * @return The class.
+     */
+    public static CharClass ofCodePoints(int... codePoints) throws IllegalArgumentException {
+        int largestBmp = -1;
+        int supplementaryCount = 0;
+        for (int codePoint : codePoints) {
+            if (!Character.isValidCodePoint(codePoint))
+                throw new IllegalArgumentException("Invalid code point " + codePoint + ".");
+            if (Character.isBmpCodePoint(codePoint))
+                largestBmp = Math.max(largestBmp, codePoint);
+            else
+                supplementaryCount++;
+        }
+
+        long[] bmp = new long[(largestBmp >> 6) + 1];
+        int[] supplementary = new int[supplementaryCount];
+        supplementaryCount = 0;
+        for (int codePoint : codePoints) {
+            if (Character.isBmpCodePoint(codePoint))
+                bmp[codePoint >> 6] |= 1L << codePoint;
+            else
+                supplementary[supplementaryCount++] = codePoint;
+        }
+        return new CharClass(bmp, Arrays.stream(supplementary).sorted().distinct().toArray());
+    }
+
+    /**
+     * Create a class of every code point that satisfies a predicate, such as Character::isWhitespace.
+     *
+     * @implSpec Evaluates the predicate once for every code point, so the class should be created once and reused.
+     * @param predicate The predicate deciding which code points are in the class.
+     * @return The class.
+     */
+    public static CharClass matching(IntPredicate predicate) {
+        return ofCodePoints(
+                IntStream.rangeClosed(Character.MIN_CODE_POINT, Character.MAX_CODE_POINT)
+                        .filter(predicate)
+                        .toArray()
+        );
+    }
+
+    /**
+     * Create a class of the characters that are in this class, another class, or both.
+     *
+     * @param other The other class.
+     * @return The union of the classes.
+     */
+    public CharClass union(CharClass other) {
+        long[] bmp = Arrays.copyOf(this.bmp, Math.max(this.bmp.length, other.bmp.length));
+        for (int i = 0; i < other.bmp.length; i++)
+            bmp[i] |= other.bmp[i];
+
+        int[] supplementary = new int[this.supplementary.length + other.supplementary.length];
+        System.arraycopy(this.supplementary, 0, supplementary, 0, this.supplementary.length);
+        System.arraycopy(other.supplementary, 0, supplementary, this.supplementary.length, other.supplementary.length);
+        return new CharClass(bmp, Arrays.stream(supplementary).sorted().distinct().toArray());
+    }
+
+    /**
+     * Determine whether the class has no characters.
+     *
+     * @return Whether the class is empty.
+     */
+    public boolean isEmpty() {
+        if (supplementary.length > 0)
+            return false;
+        for (long bits : bmp)
+            if (bits != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Get the ASCII chars of the class.
+     *
+     * @return The ASCII chars of the class, in increasing order. The array is shared and must not be modified.
+     */
+    char[] asciiMembers() {
+        return ascii;
+    }
+
+    /**
+     * Determine whether a char is in the class.
+     *
+     * @param character The char to look up. A lone surrogate is only in the class if it was added as such.
+     * @return Whether the char is in the class.
+     */
+    public boolean contains(char character) {
+        int index = character >> 6;
+        return index < bmp.length && (bmp[index] & (1L << character)) != 0;
+    }
+
+    /**
+     * Determine whether a code point is in the class.
+     *
+     * @param codePoint The code point to look up.
+     * @return Whether the code point is in the class.
+     */
+    public boolean contains(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint))
+            return contains((char) codePoint);
+        return Arrays.binarySearch(supplementary, codePoint) >= 0;
+    }
+
+    /**
+     * Determine whether the character starting at an index of a sequence is in the class.
+     *
+     * @param input The sequence.
+     * @param index The index of the character. If it is the first half of a surrogate pair, the whole pair is looked
+     * up.
+     * @return The number of chars the character takes up if it is in the class (1, or 2 for a surrogate pair), or 0 if
+     * it isn't.
+     */
+    public int matchAt(CharSequence input, int index) {
+        char character = input.charAt(index);
+        if (supplementary.length > 0 && Character.isHighSurrogate(character) && index + 1 < input.length()) {
+            char low = input.charAt(index + 1);
+            if (Character.isLowSurrogate(low))
+                return contains(Character.toCodePoint(character, low)) ? 2 : 0;
+        }
+        return contains(character) ? 1 : 0;
+    }
+
+    /**
+     * Determine whether the character ending just before an index of a sequence is in the class.
+     *
+     * @param input The sequence.
+     * @param end The index just past the character. If the character is the second half of a surrogate pair, the whole
+     * pair is looked up.
+     * @return The number of chars the character takes up if it is in the class (1, or 2 for a surrogate pair), or 0 if
+     * it isn't (or if end is 0).
+     */
+    public int matchBefore(CharSequence input, int end) {
+        if (end <= 0)
+            return 0;
+        char character = input.charAt(end - 1);
+        if (supplementary.length > 0 && Character.isLowSurrogate(character) && end >= 2) {
+            char high = input.charAt(end - 2);
+            if (Character.isHighSurrogate(high))
+                return contains(Character.toCodePoint(high, character)) ? 2 : 0;
+        }
+        return contains(character) ? 1 : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * A counter of chars that never boxes.
+ *
+ * @implNote Latin-1 chars, which make up most input, are counted in a flat table indexed by the char itself. All other
+ * chars are counted in a small open-addressing hash map of primitives, which is only allocated once such a char is
+ * first seen. The counter also keeps track of how many chars currently have a non-zero count, so checking whether all
+ * counts are zero is O(1).
+ */
+final class CharCounter {
+    private static final int DENSE_SIZE = 256;
+    private static final int INITIAL_SPARSE_CAPACITY = 16;
+
+    private final int[] dense = new int[DENSE_SIZE];
+
+    // Keys of the sparse map. Since only chars outside of Latin-1 are ever stored in it, the char 0 marks empty slots.
+    private char[] sparseKeys;
+    private int[] sparseCounts;
+    private int sparseSize;
+
+    private int nonZero;
+
+    /**
+     * Add to the count of a char.
+     *
+     * @param character The char to count.
+     * @param delta The amount to add to its count, which may be negative.
+     * @return The new count of the char.
+     */
+    int add(char character, int delta) {
+        int count;
+        if (character < DENSE_SIZE)
+            count = dense[character] += delta;
+        else {
+            // Find the slot first, since finding it may allocate or grow the sparse map.
+            int slot = sparseSlot(character);
+            count = sparseCounts[slot] += delta;
+        }
+
+        // Keep track of how many chars have a non-zero count.
+        int previous = count - delta;
+        if (previous == 0 && count != 0)
+            nonZero++;
+        else if (previous != 0 && count == 0)
+            nonZero--;
+        return count;
+    }
+
+    /**
+     * Get the count of a char.
+     *
+     * @param character The char to get the count of.
+     * @return The count of the char, or 0 if it has never been counted.
+     */
+    int get(char character) {
+        if (character < DENSE_SIZE)
+            return dense[character];
+        if (sparseKeys == null)
+            return 0;
+        int mask = sparseKeys.length - 1;
+        for (int slot = hash(character) & mask; sparseKeys[slot] != 0; slot = (slot + 1) & mask)
+            if (sparseKeys[slot] == character)
+                return sparseCounts[slot];
+        return 0;
+    }
+
+    /**
+     * Determine whether every char has a count of zero.
+     *
+     * @return Whether every char has a count of zero.
+     */
+    boolean isZero() {
+        return nonZero == 0;
+    }
+
+    /**
+     * Determine how many chars have a non-zero count.
+     *
+     * @return The number of chars with a non-zero count.
+     */
+    int nonZeroCount() {
+        return nonZero;
+    }
+
+    /**
+     * Reset the count of every char to zero, so that the counter can be reused.
+     */
+    void clear() {
+        Arrays.fill(dense, 0);
+        if (sparseSize > 0) {
+            Arrays.fill(sparseKeys, (char) 0);
+            Arrays.fill(sparseCounts, 0);
+            sparseSize = 0;
+        }
+        nonZero = 0;
+    }
+
+    /**
+     * Find the slot of a char in the sparse map, inserting it with a count of zero if it isn't there yet.
+     *
+     * @param character The char to find, which must not be a Latin-1 char.
+     * @return The index of the char's slot.
+     */
+    private int sparseSlot(char character) {
+        if (sparseKeys == null) {
+            sparseKeys = new char[INITIAL_SPARSE_CAPACITY];
+            sparseCounts = new int[INITIAL_SPARSE_CAPACITY];
+        }
+
+        // Linear probing: walk the slots from the char's hash until either the char or an empty slot is found.
+        int mask = sparseKeys.length - 1;
+        int slot = hash(character) & mask;
+        while (sparseKeys[slot] != 0) {
+            if (sparseKeys[slot] == character)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        // The char isn't in the map yet. Keep the map at most half full so that probe sequences stay short.
+        if (sparseSize + 1 > sparseKeys.length / 2) {
+            growSparse();
+            return sparseSlot(character);
+        }
+        sparseKeys[slot] = character;
+        sparseSize++;
+        return slot;
+    }
+
+    /**
+     * Double the capacity of the sparse map, rehashing every entry.
+     */
+    private void growSparse() {
+        char[] oldKeys = sparseKeys;
+        int[] oldCounts = sparseCounts;
+        sparseKeys = new char[oldKeys.length * 2];
+        sparseCounts = new int[oldKeys.length * 2];
+
+        int mask = sparseKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0)
+                continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (sparseKeys[slot] != 0)
+                slot = (slot + 1) & mask;
+            sparseKeys[slot] = oldKeys[i];
+            sparseCounts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Spread the bits of a char, so that runs of neighbouring chars (as found in most scripts) don't cluster.
+     *
+     * @param character The char to hash.
+     * @return The hash of the char.
+     */
+    private static int hash(char character) {
+        return (character * 0x9E3779B9) >>> 15;
+    }
+}
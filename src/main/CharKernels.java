@@ -0,0 +1,163 @@
+package main;
+
+import java.nio.CharBuffer;
+import java.util.Optional;
+
+/**
+ * The innermost loops of the palindrome, anagram and occurrence operations, over plain char arrays.
+ *
+ * @implNote There are two implementations that give identical results: a scalar one, and one that uses the incubating
+ * Vector API (jdk.incubator.vector) to process a whole SIMD register of chars per step. The vectorized one is only
+ * available when the JVM was started with --add-modules jdk.incubator.vector, and is then picked by best(), unless the
+ * stringtools.vector system property is set to false. The operations only take the vectorized code paths when best()
+ * is vectorized; otherwise they keep their plain char-at-a-time loops.
+ */
+public abstract class CharKernels {
+    /**
+     * The number of chars the vectorized code paths copy out of a char sequence at a time.
+     */
+    static final int WINDOW = 4096;
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final CharKernels VECTORIZED = loadVectorized();
+    private static final CharKernels BEST =
+            VECTORIZED != null && Boolean.parseBoolean(System.getProperty("stringtools.vector", "true"))
+                    ? VECTORIZED
+                    : ScalarCharKernels.INSTANCE;
+
+    // Windows that the vectorized code paths copy chars into. Each thread gets its own so they can be reused.
+    private static final ThreadLocal<char[]> WINDOWS = ThreadLocal.withInitial(() -> new char[2 * WINDOW]);
+
+    CharKernels() {}
+
+    /**
+     * Get the scalar implementation.
+     *
+     * @return The scalar kernels.
+     */
+    public static CharKernels scalar() {
+        return ScalarCharKernels.INSTANCE;
+    }
+
+    /**
+     * Get the vectorized implementation, if the Vector API module is available.
+     *
+     * @return The vectorized kernels, or nothing if the JVM was started without jdk.incubator.vector.
+     */
+    public static Optional<CharKernels> vectorized() {
+        return Optional.ofNullable(VECTORIZED);
+    }
+
+    /**
+     * Get the implementation that StringTools uses.
+     *
+     * @return The vectorized kernels if they are available and not disabled, and the scalar ones otherwise.
+     */
+    public static CharKernels best() {
+        return BEST;
+    }
+
+    /**
+     * Determine whether this implementation uses the Vector API.
+     *
+     * @return Whether the kernels are vectorized.
+     */
+    public abstract boolean isVectorized();
+
+    /**
+     * Compare the chars of a range of an array with those of another range read backwards, with ASCII case folded.
+     *
+     * @param chars The array holding both ranges.
+     * @param leftFrom The index of the first char of the range read forwards.
+     * @param rightTo The index just past the last char of the range read backwards.
+     * @param length The length of both ranges.
+     * @param stops ASCII chars that end the comparison wherever they appear, in either range.
+     * @return The number of leading positions i at which chars[leftFrom + i] and chars[rightTo - 1 - i] are both ASCII,
+     * neither is one of the stops, and they are equal once ASCII case is folded. This is length if every position
+     * matches.
+     */
+    public abstract int mirroredPrefix(char[] chars, int leftFrom, int rightTo, int length, char[] stops);
+
+    /**
+     * Find the first occurrence of a char in a range of an array.
+     *
+     * @param chars The array to search.
+     * @param from The index of the first char of the range (inclusive).
+     * @param to The index of the last char of the range (exclusive).
+     * @param target The char to find.
+     * @return The index of the first occurrence of the char in the range, or to if there is none.
+     */
+    public abstract int indexOf(char[] chars, int from, int to, char target);
+
+    /**
+     * Determine whether every char in a range of an array is a Latin-1 char.
+     *
+     * @param chars The array to check.
+     * @param from The index of the first char of the range (inclusive).
+     * @param to The index of the last char of the range (exclusive).
+     * @return Whether every char in the range is below 256.
+     */
+    public abstract boolean isLatin1(char[] chars, int from, int to);
+
+    /**
+     * Determine whether every count in an array is zero.
+     *
+     * @param counts The counts to check.
+     * @return Whether every count is zero.
+     */
+    public abstract boolean isZero(int[] counts);
+
+    /**
+     * Get the calling thread's scratch array, which holds two windows.
+     *
+     * @return An array of 2 * WINDOW chars.
+     */
+    static char[] windows() {
+        return WINDOWS.get();
+    }
+
+    /**
+     * Copy a range of a char sequence into an array, in bulk where the sequence allows it.
+     *
+     * @param input The sequence to copy from.
+     * @param from The index of the first char to copy (inclusive).
+     * @param to The index of the last char to copy (exclusive).
+     * @param destination The array to copy to.
+     * @param destinationFrom The index in the array to copy the first char to.
+     */
+    static void getChars(CharSequence input, int from, int to, char[] destination, int destinationFrom) {
+        if (input instanceof String)
+            ((String) input).getChars(from, to, destination, destinationFrom);
+        else if (input instanceof StringBuilder)
+            ((StringBuilder) input).getChars(from, to, destination, destinationFrom);
+        else if (input instanceof CharBuffer) {
+            // The chars of a CharBuffer are indexed from its position, but its bulk get is indexed from its start.
+            CharBuffer buffer = (CharBuffer) input;
+            buffer.get(buffer.position() + from, destination, destinationFrom, to - from);
+        }
+        else
+            for (int i = from; i < to; i++)
+                destination[destinationFrom + i - from] = input.charAt(i);
+    }
+
+    /**
+     * Load the vectorized implementation, without linking against the Vector API unless its module is present.
+     *
+     * @return The vectorized kernels, or null if they are not available.
+     */
+    private static CharKernels loadVectorized() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+            return null;
+        try {
+            return Class.forName("main.VectorCharKernels")
+                    .asSubclass(CharKernels.class)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            // The module is there but the Vector API can't be used, for instance on an unsupported platform.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The framing of the requests and responses of StringToolsServer: a frame is the length of its payload in bytes, as a
+ * big-endian 32-bit int, followed by the payload as UTF-8.
+ */
+final class Frames {
+    /**
+     * The longest payload that is accepted, so that a broken client can't make the server allocate without bound.
+     */
+    static final int MAX_LENGTH = 64 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Frames() {}
+
+    /**
+     * Wrap a channel in a buffered stream to read frames from.
+     *
+     * @implNote Unlike Channels.newInputStream, the stream doesn't hold the blocking lock of the channel while it
+     * waits for data, so another thread can write to the channel meanwhile, which pipelining clients rely on.
+     * @param channel The channel to read from.
+     * @return The stream.
+     */
+    static DataInputStream input(ByteChannel channel) {
+        return new DataInputStream(new BufferedInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        }, BUFFER_SIZE));
+    }
+
+    /**
+     * Wrap a channel in a buffered stream to write frames to.
+     *
+     * @see Frames#input(ByteChannel)
+     * @param channel The channel to write to.
+     * @return The stream, which has to be flushed.
+     */
+    static DataOutputStream output(ByteChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(new OutputStream() {
+            @Override
+            public void write(int value) throws IOException {
+                write(new byte[] {(byte) value}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        }, BUFFER_SIZE));
+    }
+
+    /**
+     * Read a frame.
+     *
+     * @throws ProtocolException When the frame is longer than MAX_LENGTH, or negative.
+     * @throws EOFException When the stream ends in the middle of a frame.
+     * @throws IOException When reading fails.
+     * @param in The stream to read from.
+     * @return The payload of the frame, or null if the stream ended cleanly before it.
+     */
+    static String read(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1)
+            return null;
+        int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedShort());
+        if (length < 0 || length > MAX_LENGTH)
+            throw new ProtocolException("Invalid frame length " + length + ".");
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a frame. The stream is not flushed.
+     *
+     * @throws IOException When writing fails.
+     * @param out The stream to write to.
+     * @param payload The payload of the frame.
+     */
+    static void write(DataOutputStream out, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
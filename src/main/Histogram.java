@@ -0,0 +1,149 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative long values, such as latencies in nanoseconds or input sizes in chars, that any number
+ * of threads can record into at once without locking.
+ *
+ * @implNote The buckets are laid out like those of an HdrHistogram: values below 2^PRECISION get a bucket each, and
+ * every power of two above that is split into 2^PRECISION buckets of equal width. A value is thus reported with a
+ * relative error below 2^-PRECISION (about 3%), whatever its magnitude, in a fixed array of about 1900 counts.
+ * Every count is a LongAdder, created the first time a value falls in its bucket, so that the few buckets most values
+ * fall in don't become a point of contention: under contention, a LongAdder spreads its increments over cells of their
+ * own. Recording a value is thus a few bit operations and a few LongAdder increments. Reading the histogram while
+ * values are being recorded gives a result that may miss some of those values, but is otherwise consistent enough for
+ * monitoring.
+ */
+public final class Histogram {
+    private static final int PRECISION = 5;
+    private static final int SUB_BUCKETS = 1 << PRECISION;
+
+    private final AtomicReferenceArray<LongAdder> counts =
+            new AtomicReferenceArray<>((Long.SIZE - PRECISION) * SUB_BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value.
+     *
+     * @param value The value, which is clamped to 0 if it is negative.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        int bucket = bucket(value);
+        LongAdder count = counts.get(bucket);
+        if (count == null) {
+            counts.compareAndSet(bucket, null, new LongAdder());
+            count = counts.get(bucket);
+        }
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return The number of values.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++)
+            count += count(i);
+        return count;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return The mean, or 0 if there are no values.
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : sum.sum() / (double) count;
+    }
+
+    /**
+     * Get the largest value recorded, exactly.
+     *
+     * @return The largest value, or 0 if there are no values.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile of the values recorded.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The largest value that falls in the same bucket as the value at the percentile, but no more than the
+     * largest value recorded, or 0 if there are no values.
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++)
+            count += snapshot[i] = count(i);
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * Forget every value recorded. Values recorded while the histogram is being reset may be partly forgotten.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            LongAdder count = counts.get(i);
+            if (count != null)
+                count.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    private long count(int bucket) {
+        LongAdder count = counts.get(bucket);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Find the bucket of a value.
+     *
+     * @param value A non-negative value.
+     * @return The index of its bucket.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        // The highest bit gives the power of two, and the PRECISION bits below it the bucket within that power.
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - PRECISION)) - SUB_BUCKETS;
+        return (exponent - PRECISION + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Find the largest value that falls in a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The largest value of the bucket.
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
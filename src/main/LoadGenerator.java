@@ -0,0 +1,253 @@
+package main;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A client that measures the throughput and the latency of a StringToolsServer.
+ *
+ * @implNote Every connection has a thread that sends requests and one that reads the responses. The sender keeps up
+ * to a given number of requests in flight, pipelining them without waiting for their responses. Since the server
+ * answers in order, the latency of every request is the time between sending it and reading the response with the same
+ * number, including any time it spent in the sender's buffer. Latencies are kept exactly, and sorted once at the end
+ * for the percentiles. If the sender fails, it closes the connection to wake the reader up, and the run fails with
+ * what the sender threw.
+ */
+public final class LoadGenerator {
+    /**
+     * A small mix of jobs over every kind of operation, used when no jobs are given.
+     */
+    public static final List<String> DEFAULT_JOBS = List.of(
+            "palindromeRecursive\tA man a plan a canal Panama",
+            "isPalindrome\tWas it a car or a cat I saw",
+            "anagramChecker\tlisten\tsilent",
+            "occurrenceCounter\tbanana bandana cabana\tan",
+            "occurrenceCounter\taaaaaaaa\taa\tOVERLAPPING",
+            "addSubstring\thello\t world\t4",
+            "sentenceReversal\tThe quick brown fox jumps over the lazy dog.",
+            "longestPalindrome\tStep on no pets please"
+    );
+
+    private LoadGenerator() {}
+
+    /**
+     * Put load on a server.
+     *
+     * @throws IOException When connecting to the server or talking to it fails.
+     * @throws IllegalArgumentException If there are no jobs, or connections, requests or depth is less than 1.
+     * @param address The address of the server.
+     * @param jobs The jobs to send, round robin.
+     * @param connections The number of connections to open at once.
+     * @param requests The number of requests to send over each connection.
+     * @param depth The largest number of requests that may be in flight on a connection at once.
+     * @return The measurements.
+     */
+    public static Report run(SocketAddress address, List<String> jobs, int connections, int requests, int depth)
+            throws IOException {
+        if (jobs.isEmpty())
+            throw new IllegalArgumentException("There must be at least one job.");
+        if (connections < 1 || requests < 1 || depth < 1)
+            throw new IllegalArgumentException("The connections, requests and depth must be at least 1.");
+
+        long[][] latencies = new long[connections][];
+        long[] errors = new long[connections];
+        Thread[] threads = new Thread[connections];
+        Throwable[] failures = new Throwable[connections];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int connection = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    latencies[connection] = connect(address, jobs, requests, depth, connection, errors);
+                }
+                catch (IOException | RuntimeException | Error e) {
+                    // Rethrown by run, rather than leaving a hole in the latencies.
+                    failures[connection] = e;
+                }
+            }, "LoadGenerator connection " + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the connections.", e);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (Throwable failure : failures) {
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure != null)
+                throw (Error) failure;
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Report(all, Arrays.stream(errors).sum(), elapsed);
+    }
+
+    /**
+     * Send the requests of one connection and read their responses.
+     *
+     * @return The latency of every request, in nanoseconds.
+     */
+    private static long[] connect(
+            SocketAddress address, List<String> jobs, int requests, int depth, int connection, long[] errors
+    ) throws IOException {
+        AtomicLongArray sent = new AtomicLongArray(requests);
+        long[] latencies = new long[requests];
+        Semaphore window = new Semaphore(depth);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            DataInputStream in = Frames.input(channel);
+            DataOutputStream out = Frames.output(channel);
+
+            Thread sender = new Thread(() -> {
+                try {
+                    for (int request = 0; request < requests; request++) {
+                        // Flush before blocking, so that the buffered requests get answered and free up the window.
+                        if (!window.tryAcquire()) {
+                            out.flush();
+                            window.acquireUninterruptibly();
+                        }
+                        sent.set(request, System.nanoTime());
+                        Frames.write(out, jobs.get((connection + request) % jobs.size()));
+                    }
+                    out.flush();
+                }
+                catch (Exception e) {
+                    failure.set(e);
+                    // Wake the reader up, which would otherwise wait forever for responses to requests never sent.
+                    try {
+                        channel.close();
+                    }
+                    catch (IOException closing) {
+                        e.addSuppressed(closing);
+                    }
+                }
+            }, "LoadGenerator sender " + connection);
+            sender.start();
+
+            try {
+                for (int request = 0; request < requests; request++) {
+                    String response = Frames.read(in);
+                    long received = System.nanoTime();
+                    if (response == null)
+                        throw new IOException("The server closed the connection early.");
+                    window.release();
+                    latencies[request] = received - sent.get(request);
+                    if (response.startsWith("ERR"))
+                        errors[connection]++;
+                }
+            }
+            catch (IOException e) {
+                // A sender that failed first closed the channel under the reader, and is the cause to report.
+                Exception cause = failure.get();
+                // Otherwise, let the sender run into the closed channel rather than wait for the window forever.
+                window.release(requests);
+                channel.close();
+                sender.join();
+                throw cause == null ? e : rethrow(cause);
+            }
+            sender.join();
+            if (failure.get() != null)
+                throw rethrow(failure.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending requests.", e);
+        }
+        return latencies;
+    }
+
+    /**
+     * Rethrow what a sender threw.
+     *
+     * @throws RuntimeException If the sender threw one.
+     * @param cause What the sender threw, which is either an IOException or a RuntimeException.
+     * @return The IOException, for the caller to throw.
+     */
+    private static IOException rethrow(Exception cause) {
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        return (IOException) cause;
+    }
+
+    /**
+     * The measurements of a run.
+     */
+    public static final class Report {
+        private final long[] latencies;
+        private final long errors;
+        private final long elapsed;
+
+        private Report(long[] latencies, long errors, long elapsed) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Get the number of requests that were answered.
+         *
+         * @return The number of requests.
+         */
+        public int requests() {
+            return latencies.length;
+        }
+
+        /**
+         * Get the number of requests that were answered with an error.
+         *
+         * @return The number of errors.
+         */
+        public long errors() {
+            return errors;
+        }
+
+        /**
+         * Get the number of requests answered per second, over the whole run.
+         *
+         * @return The throughput.
+         */
+        public double throughput() {
+            return latencies.length / (elapsed / 1e9);
+        }
+
+        /**
+         * Get a percentile of the latencies.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The latency in nanoseconds, or 0 if there were no requests.
+         */
+        public long latency(double percentile) {
+            if (latencies.length == 0)
+                return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder()
+                    .append(String.format("requests   %d (%d errors) in %.2f s%n", requests(), errors, elapsed / 1e9))
+                    .append(String.format("throughput %.0f requests/s%n", throughput()));
+            for (double percentile : new double[] {50, 90, 99, 99.9, 99.99, 100})
+                report.append(String.format("p%-9s %.1f us%n", percentile, latency(percentile) / 1e3));
+            return report.toString();
+        }
+    }
+}
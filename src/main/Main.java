@@ -1,18 +1,55 @@
 package main;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.InputMismatchException;
 import java.util.Scanner;
 
 /**
  * NOTE: Use -parameters flag when compiling to preserve parameter names for terminal UI.
+ * Run with --batch [file] to run jobs non-interactively instead, see BatchRunner.
+ * Run with --serve [port or socket path] to serve requests from local clients, see StringToolsServer, and with
+ * --load address [connections] [requests per connection] [pipeline depth] [jobs file] to measure such a server.
+ * Calls are measured per method, see Metrics: choose 0 in the terminal UI to print the metrics, or watch them over
+ * JMX. A server prints them to stderr when it is stopped. Run with -Dstringtools.metrics=false to turn them off.
  */
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Run the jobs of a file (or of stdin) without any interaction if asked to.
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(args.length > 1 ? args[1] : "-");
+            return;
+        }
+
+        // Serve requests from local clients, or put load on such a server, if asked to.
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args.length > 1 ? args[1] : "0");
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--load")) {
+            System.out.print(LoadGenerator.run(
+                    StringToolsServer.parseAddress(args[1]),
+                    args.length > 5 ? Files.readAllLines(Path.of(args[5])) : LoadGenerator.DEFAULT_JOBS,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 4,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 100_000,
+                    args.length > 4 ? Integer.parseInt(args[4]) : 64
+            ));
+            return;
+        }
+
         Scanner input = new Scanner(System.in);
 
         while (true) {
@@ -41,23 +78,40 @@ public class Main {
         System.out.println("Welcome to Wolf's string utility program!");
         System.out.println("To begin, select a mode from the following options:");
 
-        // Load in the methods that the user should be able to call using reflection.
+        // Load in the methods that the user should be able to call using reflection. Private helpers can't be invoked
+        // from here, and we can only parse text and integer arguments, so only the public methods that take those are
+        // offered.
         Class<StringTools> stringToolsClass = StringTools.class;
-        Method[] stringToolsMethods = stringToolsClass.getDeclaredMethods();
+        Method[] stringToolsMethods = Arrays.stream(stringToolsClass.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()))
+                .filter(method -> Arrays.stream(method.getParameterTypes()).allMatch(Main::isSupportedParameterType))
+                .toArray(Method[]::new);
 
-        // Print out all the available methods for the user to choose from using reflection.
+        // Print out all the available methods for the user to choose from using reflection, with how fast they have
+        // been so far if they have been measured.
+        System.out.println("[0] - Print the metrics of the methods called so far");
         for (int i = 0; i < stringToolsMethods.length; i++) {
             String currentMethodName = stringToolsMethods[i].getName();
             if (currentMethodName.contains("Recursive"))
                 currentMethodName += " (equally fast; preferred)";
             else if (currentMethodName.contains("Iterative"))
                 currentMethodName += " (equally fast; not preferred)";
+            OperationMetrics metrics = Metrics.lookup(stringToolsMethods[i].getName()).orElse(null);
+            if (metrics != null && metrics.getCalls() > 0)
+                currentMethodName += String.format(
+                        " (median %.1f us over %d calls)", metrics.getLatencyP50() / 1e3, metrics.getCalls()
+                );
             System.out.println("[" + (i + 1) + "]" + " - " + currentMethodName);
         }
 
         // Get the user's choice of method to use. User was presented options in index-1, so we must shift down the
         // index by 1 to return to index-0.
         int userInput = input.nextInt() - 1;
+        if (userInput == -1) {
+            System.out.print(Metrics.dump());
+            input.nextLine();
+            return;
+        }
         try {
             Method chosenMethod = stringToolsMethods[userInput];
             Parameter[] chosenMethodParams = chosenMethod.getParameters();
@@ -102,7 +156,7 @@ public class Main {
                 System.out.println(Arrays.toString(arguments));
                 System.out.println();
 
-                String output = chosenMethod.invoke((new StringTools()), arguments).toString();
+                String output = invoke(chosenMethod, arguments).toString();
 
                 System.out.println("Success! The output is \"" + output + "\"");
             }
@@ -120,4 +174,89 @@ public class Main {
             System.out.println("Whoops, you've chosen a method that doesn't exist. Please try again.");
         }
     }
+
+    /**
+     * Call a StringTools method, recording the call in Metrics.
+     *
+     * @throws IllegalAccessException When the method can't be accessed.
+     * @throws InvocationTargetException When the method throws.
+     * @param method The method.
+     * @param arguments The arguments to call it with.
+     * @return What the method returned.
+     */
+    private static Object invoke(Method method, Object[] arguments)
+            throws IllegalAccessException, InvocationTargetException {
+        if (!Metrics.ENABLED)
+            return method.invoke(new StringTools(), arguments);
+
+        OperationMetrics metrics = Metrics.operation(method.getName());
+        long inputSize = Metrics.inputSize(arguments);
+        long start = System.nanoTime();
+        try {
+            Object output = method.invoke(new StringTools(), arguments);
+            metrics.record(inputSize, System.nanoTime() - start);
+            return output;
+        }
+        catch (InvocationTargetException e) {
+            metrics.record(inputSize, System.nanoTime() - start, e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Run jobs non-interactively, writing their results to stdout.
+     *
+     * @see BatchRunner
+     * @throws IOException When reading the jobs or writing the results fails.
+     * @param jobs The path of a file holding the jobs, or "-" to read them from stdin.
+     */
+    public static void batch(String jobs) throws IOException {
+        Writer results = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try (Reader reader = jobs.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(jobs), StandardCharsets.UTF_8)) {
+            new BatchRunner().run(reader, results);
+        }
+    }
+
+    /**
+     * Serve requests from local clients until the process is stopped, then print the metrics of the calls to stderr.
+     *
+     * @see StringToolsServer
+     * @throws IOException When the socket can't be bound.
+     * @param address A port number on the loopback interface (0 for any free port), or the path of a Unix-domain
+     * socket.
+     */
+    public static void serve(String address) throws IOException {
+        StringToolsServer server = StringToolsServer.start(StringToolsServer.parseAddress(address));
+        System.out.println("Listening on " + server.address());
+        // Ctrl-C and SIGTERM don't interrupt anything, so close the server on the way out, which also deletes the
+        // file of a Unix-domain socket so that the next server can bind the same path.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            }
+            catch (IOException e) {
+                System.err.println("Failed to close the server: " + e);
+            }
+        }));
+        if (Metrics.ENABLED)
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(Metrics.dump())));
+        try {
+            server.awaitClose();
+        }
+        catch (InterruptedException e) {
+            server.close();
+        }
+    }
+
+    /**
+     * Determine whether arguments of a given type can be entered through the terminal UI.
+     *
+     * @param type The type of the parameter.
+     * @return Whether the user can enter arguments of the type.
+     */
+    private static boolean isSupportedParameterType(Class<?> type) {
+        return type.equals(String.class) || type.equals(CharSequence.class) || type.equals(int.class);
+    }
 }
\ No newline at end of file
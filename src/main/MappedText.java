@@ -0,0 +1,569 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnmappableCharacterException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+/**
+ * A text file that StringTools operations can be run over without loading it onto the heap.
+ *
+ * @implNote The file is memory-mapped, and its chars are produced one window at a time. For single-byte charsets
+ * (such as ISO-8859-1 or windows-1252) a window is a view that maps each byte to its char through a lookup table, so
+ * nothing is decoded or copied at all. For other charsets the bytes are decoded incrementally into a single reusable
+ * buffer. Either way the heap used stays constant no matter how large the file is. Offsets and counts are longs, since
+ * files may hold more chars than a String can. Bytes that don't decode to a char are always reported with a
+ * CharacterCodingException, whatever the charset, rather than replaced.
+ */
+public final class MappedText implements Closeable {
+    // The largest region mapped at once. MappedByteBuffers are indexed by int, so larger files are mapped in segments.
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    // The number of bytes decoded at once for multi-byte charsets.
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final Charset charset;
+
+    // For single-byte charsets, the char that each byte decodes to. Null for every other charset.
+    private final char[] byteChars;
+
+    // For single-byte charsets in which some bytes don't decode to any char, such as windows-1252, which bytes those
+    // are. Null if every byte decodes.
+    private final boolean[] unmappableBytes;
+
+    private MappedText(FileChannel channel, MappedByteBuffer[] segments, long size, Charset charset, char[] byteChars) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+        this.charset = charset;
+        this.byteChars = byteChars;
+        this.unmappableBytes = byteChars == null ? null : unmappableBytes(charset);
+    }
+
+    /**
+     * Memory-map a UTF-8 text file.
+     *
+     * @see MappedText#open(Path, Charset)
+     * @param path The path of the file.
+     * @return The mapped file, which should be closed once it is no longer needed.
+     * @throws IOException When the file can't be opened or mapped.
+     */
+    public static MappedText open(Path path) throws IOException {
+        return open(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Memory-map a text file.
+     *
+     * @param path The path of the file.
+     * @param charset The charset the file is encoded in.
+     * @return The mapped file, which should be closed once it is no longer needed.
+     * @throws IOException When the file can't be opened or mapped.
+     */
+    public static MappedText open(Path path, Charset charset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * SEGMENT_SIZE;
+                long length = Math.min(SEGMENT_SIZE, size - position);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            }
+            return new MappedText(channel, segments, size, charset, byteChars(charset));
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build the table of chars that each byte decodes to, if the charset encodes every char as a single byte.
+     *
+     * @param charset The charset to build the table for.
+     * @return The table, or null if the charset is not a single-byte charset. Bytes that don't decode to any char are
+     * left as 0, see unmappableBytes.
+     */
+    private static char[] byteChars(Charset charset) {
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f)
+            return null;
+
+        char[] table = new char[256];
+        for (int i = 0; i < table.length; i++) {
+            CharBuffer decoded = decodeByte(charset, i);
+            if (decoded == null)
+                continue;
+            if (decoded.length() != 1)
+                return null;
+            table[i] = decoded.charAt(0);
+        }
+        return table;
+    }
+
+    /**
+     * Find the bytes that don't decode to any char in a single-byte charset.
+     *
+     * @param charset The charset.
+     * @return Which bytes don't decode, or null if every byte does.
+     */
+    private static boolean[] unmappableBytes(Charset charset) {
+        boolean[] unmappable = new boolean[256];
+        boolean any = false;
+        for (int i = 0; i < unmappable.length; i++)
+            any |= unmappable[i] = decodeByte(charset, i) == null;
+        return any ? unmappable : null;
+    }
+
+    /**
+     * Decode a single byte with the same policy as every other decoding of the file.
+     *
+     * @return The chars of the byte, or null if it doesn't decode to any.
+     */
+    private static CharBuffer decodeByte(Charset charset, int value) {
+        try {
+            return reportingDecoder(charset).decode(ByteBuffer.wrap(new byte[] {(byte) value}));
+        }
+        catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the size of the file.
+     *
+     * @return The size of the file, in bytes.
+     */
+    public long byteSize() {
+        return size;
+    }
+
+    /**
+     * Count the number of chars in the file.
+     *
+     * @implSpec Runs in O(1) for single-byte charsets in which every byte decodes to a char, and O(n) where n is the
+     * size of the file otherwise.
+     * @return The number of chars in the file.
+     * @throws IOException When the file is not validly encoded.
+     */
+    public long length() throws IOException {
+        if (byteChars != null && unmappableBytes == null)
+            return size;
+
+        long length = 0;
+        ForwardWindows windows = new ForwardWindows();
+        for (CharSequence window = windows.next(); window != null; window = windows.next())
+            length += window.length();
+        return length;
+    }
+
+    /**
+     * Count the number of non-overlapping occurrences of a substring in the file.
+     *
+     * @see MappedText#occurrenceCounter(SubstringPattern, StringTools.OccurrenceMode)
+     * @throws IllegalArgumentException When the substring is empty.
+     * @param substring The substring to count occurrences of.
+     * @return The number of occurrences of the substring in the file.
+     * @throws IOException When the file is not validly encoded.
+     */
+    public long occurrenceCounter(String substring) throws IllegalArgumentException, IOException {
+        return occurrenceCounter(SubstringPattern.compile(substring), StringTools.OccurrenceMode.NON_OVERLAPPING);
+    }
+
+    /**
+     * Count the number of occurrences of a substring in the file.
+     *
+     * @implSpec Runs in O(n) where n is the size of the file.
+     * @implNote Gives the same result as StringTools.occurrenceCounter on the whole file as a String.
+     * @param pattern The compiled substring to count occurrences of.
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences of the substring in the file.
+     * @throws IOException When the file is not validly encoded.
+     */
+    public long occurrenceCounter(SubstringPattern pattern, StringTools.OccurrenceMode mode) throws IOException {
+        SubstringPattern.StreamCounter counter = pattern.streamCounter(mode);
+        ForwardWindows windows = new ForwardWindows();
+        for (CharSequence window = windows.next(); window != null; window = windows.next())
+            counter.feed(window);
+        return counter.count();
+    }
+
+    /**
+     * Determine whether the file is a palindrome.
+     *
+     * @implSpec Runs in O(n) where n is the size of the file.
+     * @implNote Gives the same result as StringTools.isPalindrome on the whole file as a String. The file is read from
+     * both ends at once, which is only possible for single-byte charsets and UTF-8, since their char boundaries can be
+     * found when reading backwards.
+     * @return Whether the file is a palindrome.
+     * @throws UnsupportedOperationException When the file is in a multi-byte charset other than UTF-8.
+     * @throws IOException When the file is not validly encoded.
+     */
+    public boolean isPalindrome() throws UnsupportedOperationException, IOException {
+        if (byteChars == null && !charset.equals(StandardCharsets.UTF_8))
+            throw new UnsupportedOperationException("Palindromes can't be checked in " + charset + " files.");
+
+        // Walk two cursors inward from either end of the file, exactly like StringTools.isPalindrome does. The indices
+        // are only used to know when the cursors meet, so the number of chars has to be known up front.
+        CharCursor forward = new CharCursor(new ForwardWindows(), false);
+        CharCursor backward = new CharCursor(new BackwardWindows(), true);
+        CharClass skipped = TextRules.DEFAULT.palindromeSkipped();
+        long left = 0;
+        long right = length() - 1;
+        char leftChar = 0;
+        char rightChar = 0;
+        boolean hasLeftChar = false;
+        boolean hasRightChar = false;
+        while (left < right) {
+            if (!hasLeftChar) {
+                leftChar = forward.next();
+                hasLeftChar = true;
+            }
+            if (skipped.contains(leftChar)) {
+                left++;
+                hasLeftChar = false;
+                continue;
+            }
+
+            if (!hasRightChar) {
+                rightChar = backward.next();
+                hasRightChar = true;
+            }
+            if (skipped.contains(rightChar)) {
+                right--;
+                hasRightChar = false;
+                continue;
+            }
+
+            if (leftChar != rightChar
+                    && StringTools.foldPalindromeChar(leftChar) != StringTools.foldPalindromeChar(rightChar))
+                return false;
+            left++;
+            right--;
+            hasLeftChar = false;
+            hasRightChar = false;
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether the file is an anagram of another file.
+     *
+     * @implSpec Runs in O(n + m) where n and m are the sizes of the files.
+     * @implNote Gives the same result as StringTools.anagramChecker on both files as Strings, as long as no char occurs
+     * 2^32 times or more (the counts are kept in ints).
+     * @param other The other file.
+     * @return Whether the files are anagrams of each other.
+     * @throws IOException When one of the files is not validly encoded.
+     */
+    public boolean isAnagramOf(MappedText other) throws IOException {
+        CharCounter counter = new CharCounter();
+        ForwardWindows windows = new ForwardWindows();
+        for (CharSequence window = windows.next(); window != null; window = windows.next())
+            for (int i = 0; i < window.length(); i++)
+                counter.add(window.charAt(i), 1);
+
+        ForwardWindows otherWindows = other.new ForwardWindows();
+        for (CharSequence window = otherWindows.next(); window != null; window = otherWindows.next())
+            for (int i = 0; i < window.length(); i++)
+                counter.add(window.charAt(i), -1);
+        return counter.isZero();
+    }
+
+    /**
+     * Find every window of the file that is an anagram of a pattern.
+     *
+     * @implSpec Runs in O(n + m) where n is the size of the file and m is pattern.length().
+     * @implNote Works like StringTools.anagramOccurrences, except that the chars that leave the window are remembered
+     * in a ring buffer of m chars, since the file is only read once, front to back.
+     * @param pattern The pattern to find anagrams of.
+     * @param onMatch Called with the char offset of the first char of every matching window, in increasing order.
+     * @throws IOException When the file is not validly encoded.
+     */
+    public void anagramOccurrences(CharSequence pattern, LongConsumer onMatch) throws IOException {
+        int windowLength = pattern.length();
+        CharCounter counter = new CharCounter();
+        for (int i = 0; i < windowLength; i++)
+            counter.add(pattern.charAt(i), -1);
+
+        // An empty pattern matches at every offset, including the one just past the last char.
+        if (windowLength == 0)
+            onMatch.accept(0);
+
+        char[] ring = new char[Math.max(windowLength, 1)];
+        long offset = 0;
+        ForwardWindows windows = new ForwardWindows();
+        for (CharSequence window = windows.next(); window != null; window = windows.next()) {
+            for (int i = 0; i < window.length(); i++) {
+                char character = window.charAt(i);
+                int slot = (int) (offset % ring.length);
+                if (offset >= windowLength)
+                    counter.add(ring[slot], -1);
+                counter.add(character, 1);
+                ring[slot] = character;
+                offset++;
+                if (offset >= windowLength && counter.isZero())
+                    onMatch.accept(offset - windowLength);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Get a region of the file.
+     *
+     * @param position The position of the first byte of the region.
+     * @param length The number of bytes in the region.
+     * @return A buffer over the region, positioned at its start.
+     * @throws IOException When a region that spans two segments can't be mapped.
+     */
+    private ByteBuffer bytes(long position, int length) throws IOException {
+        if (length == 0)
+            return EMPTY;
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        if (offset + length <= segments[segment].capacity())
+            return segments[segment].slice(offset, length);
+
+        // The region spans two segments. This only happens for the few windows that straddle a segment boundary, so
+        // mapping them on their own is cheap.
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Get a byte of the file.
+     *
+     * @param position The position of the byte.
+     * @return The byte.
+     */
+    private byte byteAt(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    /**
+     * Create a decoder for the file's charset that reports malformed input instead of silently replacing it, so that
+     * decoding the same bytes always gives the same chars.
+     */
+    private CharsetDecoder newDecoder() {
+        return reportingDecoder(charset);
+    }
+
+    private static CharsetDecoder reportingDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * View bytes of a single-byte charset as chars, reporting bytes that don't decode like a decoder would.
+     *
+     * @throws UnmappableCharacterException When one of the bytes doesn't decode to any char.
+     * @throws IOException When the bytes can't be mapped.
+     */
+    private ByteChars byteWindow(long position, int length) throws IOException {
+        ByteBuffer bytes = bytes(position, length);
+        if (unmappableBytes != null)
+            for (int i = 0; i < length; i++)
+                if (unmappableBytes[bytes.get(i) & 0xFF])
+                    throw new UnmappableCharacterException(1);
+        return new ByteChars(bytes, byteChars);
+    }
+
+    /**
+     * A sequence of windows of chars.
+     */
+    private interface Windows {
+        /**
+         * Get the next window of chars. The window is only valid until the next call.
+         *
+         * @return The next window, or null once there are no more.
+         * @throws IOException When the file is not validly encoded.
+         */
+        CharSequence next() throws IOException;
+    }
+
+    /**
+     * The chars of the file, front to back, one window at a time.
+     */
+    private final class ForwardWindows implements Windows {
+        private final CharsetDecoder decoder;
+        private final CharBuffer decoded;
+        private long position;
+        private boolean flushed;
+
+        private ForwardWindows() {
+            decoder = byteChars == null ? newDecoder() : null;
+            decoded = byteChars == null ? CharBuffer.allocate(WINDOW_SIZE) : null;
+        }
+
+        @Override
+        public CharSequence next() throws IOException {
+            // Single-byte charsets don't have to be decoded, so every segment is a window on its own.
+            if (byteChars != null) {
+                if (position == size)
+                    return null;
+                int length = (int) Math.min(SEGMENT_SIZE, size - position);
+                ByteChars window = byteWindow(position, length);
+                position += length;
+                return window;
+            }
+
+            while (!flushed) {
+                decoded.clear();
+                ByteBuffer window = bytes(position, (int) Math.min(WINDOW_SIZE, size - position));
+                boolean endOfInput = position + window.remaining() == size;
+                CoderResult result = decoder.decode(window, decoded, endOfInput);
+                if (result.isError())
+                    result.throwException();
+
+                // Bytes of a char that was cut off at the end of the window are left unconsumed, so the next window
+                // starts with them again.
+                position += window.position();
+                if (endOfInput && result.isUnderflow()) {
+                    result = decoder.flush(decoded);
+                    if (result.isError())
+                        result.throwException();
+                    flushed = true;
+                }
+
+                decoded.flip();
+                if (decoded.hasRemaining())
+                    return decoded;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The chars of the file, back to front, one window at a time. The chars within a window are still in their usual
+     * order.
+     */
+    private final class BackwardWindows implements Windows {
+        private final CharsetDecoder decoder;
+        private final CharBuffer decoded;
+        private long end = size;
+
+        private BackwardWindows() {
+            decoder = byteChars == null ? newDecoder() : null;
+            decoded = byteChars == null ? CharBuffer.allocate(WINDOW_SIZE) : null;
+        }
+
+        @Override
+        public CharSequence next() throws IOException {
+            if (end == 0)
+                return null;
+
+            long start = Math.max(0, end - WINDOW_SIZE);
+            if (byteChars != null) {
+                ByteChars window = byteWindow(start, (int) (end - start));
+                end = start;
+                return window;
+            }
+
+            // Move the start of the window forward to the start of a UTF-8 char, skipping continuation bytes.
+            while (start > 0 && start < end && (byteAt(start) & 0xC0) == 0x80)
+                start++;
+
+            decoder.reset();
+            decoded.clear();
+            ByteBuffer window = bytes(start, (int) (end - start));
+            CoderResult result = decoder.decode(window, decoded, true);
+            if (!result.isError())
+                result = decoder.flush(decoded);
+            if (result.isError() || window.hasRemaining())
+                throw new CharacterCodingException();
+
+            end = start;
+            decoded.flip();
+            return decoded;
+        }
+    }
+
+    /**
+     * Reads the chars of a sequence of windows one at a time.
+     */
+    private static final class CharCursor {
+        private final Windows windows;
+        private final boolean backward;
+        private CharSequence window;
+        private int index;
+
+        private CharCursor(Windows windows, boolean backward) {
+            this.windows = windows;
+            this.backward = backward;
+        }
+
+        /**
+         * Get the next char.
+         *
+         * @return The next char, front to back or back to front depending on the direction of the cursor.
+         * @throws IOException When the file is not validly encoded.
+         */
+        private char next() throws IOException {
+            while (window == null || (backward ? index < 0 : index >= window.length())) {
+                window = windows.next();
+                if (window == null)
+                    throw new IllegalStateException("Read past the end of the file.");
+                index = backward ? window.length() - 1 : 0;
+            }
+            return window.charAt(backward ? index-- : index++);
+        }
+    }
+
+    /**
+     * A view of bytes as chars, for single-byte charsets.
+     */
+    private static final class ByteChars implements CharSequence {
+        private final ByteBuffer bytes;
+        private final char[] byteChars;
+
+        private ByteChars(ByteBuffer bytes, char[] byteChars) {
+            this.bytes = bytes;
+            this.byteChars = byteChars;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return byteChars[bytes.get(index) & 0xFF];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteChars(bytes.slice(start, end - start), byteChars);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length()];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = charAt(i);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The metrics of the StringTools operations run through the terminal UI, BatchRunner and StringToolsServer, kept per
+ * operation name (overloads share their metrics).
+ *
+ * <p>Every operation's metrics are registered with the platform MBean server, as
+ * {@code stringtools:type=Operation,name=<operation>}, so they can be watched with JConsole or any other JMX client.
+ * dump() formats them all as a table.
+ *
+ * @implNote Metrics are on unless the stringtools.metrics system property is set to false. Since ENABLED is a
+ * constant, the callers check it once when they bind an operation, and bind it without any timing when it is false, so
+ * disabled metrics cost nothing and no MBeans are registered. When enabled, a call costs two System.nanoTime() calls
+ * and a few LongAdder increments, which stay cheap when many threads record the same operation (see Histogram).
+ */
+public final class Metrics {
+    /**
+     * Whether metrics are recorded.
+     */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("stringtools.metrics", "true"));
+
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Get the metrics of an operation, creating and registering them if this is the first time they are asked for.
+     *
+     * @param operation The name of the operation.
+     * @return The metrics of the operation.
+     */
+    public static OperationMetrics operation(String operation) {
+        return OPERATIONS.computeIfAbsent(operation, name -> {
+            OperationMetrics metrics = new OperationMetrics(name);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        metrics, ObjectName.getInstance("stringtools:type=Operation,name=" + ObjectName.quote(name))
+                );
+            }
+            catch (JMException e) {
+                // Another copy of this class already registered the name. The metrics still work, just not over JMX.
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Get the metrics of an operation if they have been created, without creating or registering them otherwise.
+     *
+     * @param operation The name of the operation.
+     * @return The metrics of the operation, or nothing if it has never been bound.
+     */
+    public static Optional<OperationMetrics> lookup(String operation) {
+        return Optional.ofNullable(OPERATIONS.get(operation));
+    }
+
+    /**
+     * Get the metrics of every operation that has been bound so far.
+     *
+     * @return The metrics, by operation name.
+     */
+    public static Collection<OperationMetrics> operations() {
+        return OPERATIONS.values();
+    }
+
+    /**
+     * Count the chars of the arguments of a call.
+     *
+     * @param arguments The arguments.
+     * @return The total length of the arguments that are char sequences.
+     */
+    public static long inputSize(Object[] arguments) {
+        long size = 0;
+        for (Object argument : arguments)
+            if (argument instanceof CharSequence)
+                size += ((CharSequence) argument).length();
+        return size;
+    }
+
+    /**
+     * Format the metrics of every operation that has been called, as a table with one line per operation. Latencies
+     * are in microseconds and input sizes in chars.
+     *
+     * @return The table.
+     */
+    public static String dump() {
+        if (!ENABLED)
+            return "Metrics are disabled (-Dstringtools.metrics=false).\n";
+
+        List<OperationMetrics> called = OPERATIONS.values().stream()
+                .filter(metrics -> metrics.getCalls() > 0)
+                .sorted(Comparator.comparing(OperationMetrics::getOperation))
+                .collect(Collectors.toList());
+        StringBuilder table = new StringBuilder(String.format(
+                "%-26s %10s %8s %9s %9s %9s %9s %9s %9s %9s %9s  %s%n",
+                "operation", "calls", "failures", "mean us", "p50 us", "p99 us", "p99.9 us", "max us",
+                "size p50", "size p99", "size max", "exceptions"
+        ));
+        for (OperationMetrics metrics : called)
+            table.append(String.format(
+                    "%-26s %10d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9d %9d %9d  %s",
+                    metrics.getOperation(), metrics.getCalls(), metrics.getFailures(),
+                    metrics.getLatencyMean() / 1e3, metrics.getLatencyP50() / 1e3, metrics.getLatencyP99() / 1e3,
+                    metrics.getLatencyP999() / 1e3, metrics.getLatencyMax() / 1e3,
+                    metrics.getInputSizeP50(), metrics.getInputSizeP99(), metrics.getInputSizeMax(),
+                    metrics.getExceptions().isEmpty() ? "" : metrics.getExceptions()
+            ).stripTrailing()).append(System.lineSeparator());
+        return table.toString();
+    }
+
+    /**
+     * Forget everything recorded about every operation.
+     */
+    public static void reset() {
+        OPERATIONS.values().forEach(OperationMetrics::reset);
+    }
+}
@@ -0,0 +1,282 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of substrings that has been preprocessed for counting all of their occurrences in a single pass.
+ *
+ * @implNote This is an Aho–Corasick automaton. The trie of the substrings is turned into a full transition table (with
+ * the failure links already followed), so each char of the input costs one table lookup. To keep the table compact, its
+ * columns are not chars but the distinct chars that actually appear in the substrings, plus one column shared by every
+ * other char. Instances are immutable and can be shared between threads, so the automaton only has to be built once.
+ */
+public final class MultiSubstringPattern {
+    private static final int DENSE_SIZE = 256;
+
+    // The largest array the JVM reliably allocates.
+    private static final int MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int patternCount;
+    private final int[] patternLengths;
+
+    // Column lookup: Latin-1 chars are looked up directly, every other char is binary searched in sparseChars (and its
+    // column follows those of the Latin-1 chars). Column 0 is for chars that don't appear in any substring.
+    private final int[] denseColumns;
+    private final char[] sparseChars;
+    private final int sparseOffset;
+    private final int columns;
+
+    // transitions[state * columns + column] is the state reached from state on a char in column.
+    private final int[] transitions;
+
+    // The substrings that end at a state are outputs[outputStarts[state] .. outputStarts[state + 1]]. dictionaryLinks
+    // points to the closest state along the failure links that has outputs of its own, or -1 if there is none.
+    private final int[] outputStarts;
+    private final int[] outputs;
+    private final int[] dictionaryLinks;
+
+    private MultiSubstringPattern(
+            int[] patternLengths, int[] denseColumns, char[] sparseChars, int sparseOffset, int columns,
+            int[] transitions, int[] outputStarts, int[] outputs, int[] dictionaryLinks
+    ) {
+        this.patternCount = patternLengths.length;
+        this.patternLengths = patternLengths;
+        this.denseColumns = denseColumns;
+        this.sparseChars = sparseChars;
+        this.sparseOffset = sparseOffset;
+        this.columns = columns;
+        this.transitions = transitions;
+        this.outputStarts = outputStarts;
+        this.outputs = outputs;
+        this.dictionaryLinks = dictionaryLinks;
+    }
+
+    /**
+     * Preprocess a set of substrings for counting their occurrences.
+     *
+     * @see MultiSubstringPattern#compile(Collection)
+     * @throws IllegalArgumentException When one of the substrings is empty, or when the transition table of the
+     * substrings doesn't fit in an array.
+     * @param substrings The substrings to preprocess.
+     * @return The compiled automaton.
+     */
+    public static MultiSubstringPattern compile(CharSequence... substrings) throws IllegalArgumentException {
+        return compile(Arrays.asList(substrings));
+    }
+
+    /**
+     * Preprocess a set of substrings for counting their occurrences.
+     *
+     * @implSpec Runs in O(m * a + m * log(k)) where m is the combined length of the k substrings and a is the number of
+     * distinct chars in them.
+     * @throws IllegalArgumentException When one of the substrings is empty, or when the substrings have so many
+     * distinct prefixes and distinct chars between them that the transition table doesn't fit in an array.
+     * @param substrings The substrings to preprocess. Counts are reported in the same order, and duplicates are
+     * counted separately.
+     * @return The compiled automaton.
+     */
+    public static MultiSubstringPattern compile(Collection<? extends CharSequence> substrings)
+            throws IllegalArgumentException {
+        List<? extends CharSequence> patterns = List.copyOf(substrings);
+        int[] patternLengths = new int[patterns.size()];
+        long combinedLength = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            patternLengths[i] = patterns.get(i).length();
+            if (patternLengths[i] == 0)
+                throw new IllegalArgumentException("The substrings to count must not be empty.");
+            combinedLength += patternLengths[i];
+        }
+        if (combinedLength >= MAX_TABLE_SIZE)
+            throw new IllegalArgumentException("The substrings are too long to count together.");
+        int totalLength = (int) combinedLength;
+
+        // Give every distinct char of the substrings its own column, in char order.
+        char[] alphabet = new char[totalLength];
+        int alphabetSize = 0;
+        for (CharSequence pattern : patterns)
+            for (int i = 0; i < pattern.length(); i++)
+                alphabet[alphabetSize++] = pattern.charAt(i);
+        Arrays.sort(alphabet, 0, alphabetSize);
+        int distinct = 0;
+        for (int i = 0; i < alphabetSize; i++)
+            if (distinct == 0 || alphabet[i] != alphabet[distinct - 1])
+                alphabet[distinct++] = alphabet[i];
+
+        int[] denseColumns = new int[DENSE_SIZE];
+        int sparseStart = 0;
+        while (sparseStart < distinct && alphabet[sparseStart] < DENSE_SIZE) {
+            denseColumns[alphabet[sparseStart]] = sparseStart + 1;
+            sparseStart++;
+        }
+        char[] sparseChars = Arrays.copyOfRange(alphabet, sparseStart, distinct);
+        int sparseOffset = sparseStart + 1;
+        int columns = distinct + 1;
+
+        // Count the states of the trie first, so that the table is allocated once, at its exact size. Besides the root,
+        // there is a state per distinct prefix of the substrings: once they are sorted, those are the prefixes that
+        // each substring doesn't share with the one before it. Once the size of the table is known to fit in an int,
+        // so does every state * columns + column below.
+        String[] sorted = patterns.stream().map(CharSequence::toString).sorted().toArray(String[]::new);
+        int trieSize = 1;
+        for (int p = 0; p < sorted.length; p++) {
+            int shared = 0;
+            if (p > 0)
+                while (shared < sorted[p].length() && shared < sorted[p - 1].length()
+                        && sorted[p].charAt(shared) == sorted[p - 1].charAt(shared))
+                    shared++;
+            trieSize += sorted[p].length() - shared;
+        }
+        long tableSize = (long) trieSize * columns;
+        if (tableSize > MAX_TABLE_SIZE)
+            throw new IllegalArgumentException(
+                    "The transition table of " + trieSize + " states by " + columns + " columns is too large; "
+                            + "count fewer substrings at once, or substrings with fewer distinct chars."
+            );
+
+        // Build the trie, with the root being state 0. Since no transition of the trie leads back to the root, 0 also
+        // marks missing children for now.
+        int[] transitions = new int[(int) tableSize];
+        int[] terminalCounts = new int[trieSize];
+        int[] patternEnds = new int[patterns.size()];
+        int states = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            CharSequence pattern = patterns.get(p);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cell = state * columns + column(pattern.charAt(i), denseColumns, sparseChars, sparseOffset);
+                if (transitions[cell] == 0)
+                    transitions[cell] = states++;
+                state = transitions[cell];
+            }
+            patternEnds[p] = state;
+            terminalCounts[state]++;
+        }
+
+        // Lay out the outputs of each state contiguously.
+        int[] outputStarts = new int[states + 1];
+        for (int state = 0; state < states; state++)
+            outputStarts[state + 1] = outputStarts[state] + terminalCounts[state];
+        int[] outputs = new int[patterns.size()];
+        int[] filled = new int[states];
+        for (int p = 0; p < patterns.size(); p++) {
+            int state = patternEnds[p];
+            outputs[outputStarts[state] + filled[state]++] = p;
+        }
+
+        // Walk the trie breadth first, so that the failure link of a state is always finished before the state itself.
+        // A missing child takes the transition of the failure link instead, which turns the trie into a full
+        // transition table.
+        int[] failureLinks = new int[states];
+        int[] dictionaryLinks = new int[states];
+        dictionaryLinks[0] = -1;
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int column = 0; column < columns; column++) {
+            int child = transitions[column];
+            if (child != 0) {
+                failureLinks[child] = 0;
+                dictionaryLinks[child] = -1;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failure = failureLinks[state];
+            for (int column = 0; column < columns; column++) {
+                int cell = state * columns + column;
+                int fallback = transitions[failure * columns + column];
+                int child = transitions[cell];
+                if (child == 0) {
+                    transitions[cell] = fallback;
+                    continue;
+                }
+                failureLinks[child] = fallback;
+                dictionaryLinks[child] = outputStarts[fallback] != outputStarts[fallback + 1]
+                        ? fallback
+                        : dictionaryLinks[fallback];
+                queue[tail++] = child;
+            }
+        }
+
+        return new MultiSubstringPattern(
+                patternLengths, denseColumns, sparseChars, sparseOffset, columns,
+                transitions, outputStarts, outputs, dictionaryLinks
+        );
+    }
+
+    /**
+     * Get the number of substrings in the set.
+     *
+     * @return The number of substrings.
+     */
+    public int size() {
+        return patternCount;
+    }
+
+    /**
+     * Count the number of non-overlapping occurrences of every substring in an input, like SubstringPattern.count and
+     * StringTools.multiOccurrenceCounter.
+     *
+     * @see MultiSubstringPattern#count(CharSequence, StringTools.OccurrenceMode)
+     * @param input The input containing occurrences of the substrings.
+     * @return The number of occurrences of each substring, in the order the substrings were given.
+     */
+    public int[] count(CharSequence input) {
+        return count(input, StringTools.OccurrenceMode.NON_OVERLAPPING);
+    }
+
+    /**
+     * Count the number of occurrences of every substring in an input.
+     *
+     * @implSpec Runs in O(n + z) where n is input.length() and z is the number of occurrences found.
+     * @implNote Each substring is counted on its own, so the mode only decides whether the occurrences of one substring
+     * may overlap each other; occurrences of different substrings may always overlap. The counts are the same as those
+     * of SubstringPattern.
+     * @param input The input containing occurrences of the substrings.
+     * @param mode Whether occurrences of a substring may overlap each other.
+     * @return The number of occurrences of each substring, in the order the substrings were given.
+     */
+    public int[] count(CharSequence input, StringTools.OccurrenceMode mode) {
+        int[] counts = new int[patternCount];
+
+        // For non-overlapping counting, remember where the last counted occurrence of each substring ended. Occurrences
+        // are found in the order they end, so an occurrence is counted exactly when it starts after that point.
+        int[] lastEnds = null;
+        if (mode == StringTools.OccurrenceMode.NON_OVERLAPPING)
+            lastEnds = new int[patternCount];
+
+        int state = 0;
+        for (int i = 0; i < input.length(); i++) {
+            state = transitions[state * columns + column(input.charAt(i), denseColumns, sparseChars, sparseOffset)];
+
+            // Report the substrings ending at this state, then those ending at each shorter suffix of it.
+            for (int output = state; output > 0; output = dictionaryLinks[output]) {
+                for (int o = outputStarts[output]; o < outputStarts[output + 1]; o++) {
+                    int pattern = outputs[o];
+                    if (lastEnds != null) {
+                        if (i + 1 - patternLengths[pattern] < lastEnds[pattern])
+                            continue;
+                        lastEnds[pattern] = i + 1;
+                    }
+                    counts[pattern]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Find the column of the transition table for a char.
+     *
+     * @return The column of the char, or 0 if it doesn't appear in any substring.
+     */
+    private static int column(char character, int[] denseColumns, char[] sparseChars, int sparseOffset) {
+        if (character < DENSE_SIZE)
+            return denseColumns[character];
+        int index = Arrays.binarySearch(sparseChars, character);
+        return index >= 0 ? sparseOffset + index : 0;
+    }
+}
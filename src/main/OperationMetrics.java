@@ -0,0 +1,138 @@
+package main;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What has been recorded about the calls of a StringTools operation: how many there were, how large their inputs
+ * were, how long they took and what they threw. Any number of threads can record calls at once.
+ *
+ * @see Metrics
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+    private final String operation;
+    private final Histogram latencies = new Histogram();
+    private final Histogram inputSizes = new Histogram();
+    private final Map<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+    OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Record a call that returned.
+     *
+     * @param inputSize The number of chars the call was given.
+     * @param latency How long the call took, in nanoseconds.
+     */
+    public void record(long inputSize, long latency) {
+        latencies.record(latency);
+        inputSizes.record(inputSize);
+    }
+
+    /**
+     * Record a call that threw.
+     *
+     * @param inputSize The number of chars the call was given.
+     * @param latency How long the call took, in nanoseconds.
+     * @param thrown What the call threw.
+     */
+    public void record(long inputSize, long latency, Throwable thrown) {
+        record(inputSize, latency);
+        exceptions.computeIfAbsent(thrown.getClass().getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Get the latencies of the calls.
+     *
+     * @return The histogram of the latencies, in nanoseconds.
+     */
+    public Histogram latencies() {
+        return latencies;
+    }
+
+    /**
+     * Get the input sizes of the calls.
+     *
+     * @return The histogram of the input sizes, in chars.
+     */
+    public Histogram inputSizes() {
+        return inputSizes;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCalls() {
+        return latencies.count();
+    }
+
+    @Override
+    public long getFailures() {
+        return exceptions.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getExceptions() {
+        Map<String, Long> counts = new TreeMap<>();
+        exceptions.forEach((name, count) -> counts.put(name, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public double getLatencyMean() {
+        return latencies.mean();
+    }
+
+    @Override
+    public long getLatencyP50() {
+        return latencies.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99() {
+        return latencies.percentile(99);
+    }
+
+    @Override
+    public long getLatencyP999() {
+        return latencies.percentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMax() {
+        return latencies.max();
+    }
+
+    @Override
+    public double getInputSizeMean() {
+        return inputSizes.mean();
+    }
+
+    @Override
+    public long getInputSizeP50() {
+        return inputSizes.percentile(50);
+    }
+
+    @Override
+    public long getInputSizeP99() {
+        return inputSizes.percentile(99);
+    }
+
+    @Override
+    public long getInputSizeMax() {
+        return inputSizes.max();
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        inputSizes.reset();
+        exceptions.clear();
+    }
+}
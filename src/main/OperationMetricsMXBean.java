@@ -0,0 +1,105 @@
+package main;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of a StringTools operation, as registered under
+ * {@code stringtools:type=Operation,name=<operation>}. Latencies are in nanoseconds and input sizes in chars.
+ */
+public interface OperationMetricsMXBean {
+    /**
+     * Get the name of the operation.
+     *
+     * @return The name.
+     */
+    String getOperation();
+
+    /**
+     * Get the number of calls, including those that threw.
+     *
+     * @return The number of calls.
+     */
+    long getCalls();
+
+    /**
+     * Get the number of calls that threw.
+     *
+     * @return The number of failed calls.
+     */
+    long getFailures();
+
+    /**
+     * Get the number of calls that threw, by the simple name of what they threw.
+     *
+     * @return The number of failed calls, such as {@code InvalidSentenceException=3}.
+     */
+    Map<String, Long> getExceptions();
+
+    /**
+     * Get the mean latency of the calls.
+     *
+     * @return The mean latency.
+     */
+    double getLatencyMean();
+
+    /**
+     * Get the median latency of the calls.
+     *
+     * @return The median latency.
+     */
+    long getLatencyP50();
+
+    /**
+     * Get the 99th percentile of the latencies of the calls.
+     *
+     * @return The 99th percentile latency.
+     */
+    long getLatencyP99();
+
+    /**
+     * Get the 99.9th percentile of the latencies of the calls.
+     *
+     * @return The 99.9th percentile latency.
+     */
+    long getLatencyP999();
+
+    /**
+     * Get the largest latency of the calls.
+     *
+     * @return The largest latency.
+     */
+    long getLatencyMax();
+
+    /**
+     * Get the mean input size of the calls.
+     *
+     * @return The mean input size.
+     */
+    double getInputSizeMean();
+
+    /**
+     * Get the median input size of the calls.
+     *
+     * @return The median input size.
+     */
+    long getInputSizeP50();
+
+    /**
+     * Get the 99th percentile of the input sizes of the calls.
+     *
+     * @return The 99th percentile input size.
+     */
+    long getInputSizeP99();
+
+    /**
+     * Get the largest input size of the calls.
+     *
+     * @return The largest input size.
+     */
+    long getInputSizeMax();
+
+    /**
+     * Forget everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,125 @@
+package main;
+
+/**
+ * The longest palindrome around every center of a sanitized input, found with Manacher's algorithm.
+ *
+ * @implNote The input is sanitized the same way palindromeRecursive sanitizes it, and the index in the input of every
+ * sanitized char is kept so that palindromes can be reported in terms of the original input. Manacher's algorithm then
+ * walks the centers from left to right, keeping the palindrome that reaches furthest right so far. A center inside it
+ * starts from the radius of its mirror image, which is already known, so every char is only compared a bounded number
+ * of times and the radii of all 2n - 1 centers take O(n) to find.
+ */
+final class PalindromeCenters {
+    // The index in the input of every sanitized char.
+    private final int[] offsets;
+
+    // odd[i] is the radius of the longest odd-length palindrome centered on char i, counting char i itself.
+    private final int[] odd;
+
+    // even[i] is the radius of the longest even-length palindrome centered between chars i - 1 and i.
+    private final int[] even;
+
+    /**
+     * Find the palindromes of an input.
+     *
+     * @implSpec Runs in O(n) where n is input.length().
+     * @param input The input to find the palindromes of.
+     * @param rules The rules deciding which characters to skip.
+     */
+    PalindromeCenters(CharSequence input, TextRules rules) {
+        char[] chars = StringTools.cleanPalindromeChars(input, rules);
+        int length = chars.length;
+
+        offsets = new int[length];
+        CharClass skipped = rules.palindromeSkipped();
+        int position = 0;
+        for (int i = 0; i < input.length(); i++) {
+            int skip = skipped.matchAt(input, i);
+            if (skip == 0)
+                offsets[position++] = i;
+            else
+                i += skip - 1;
+        }
+
+        // [left, right] is the palindrome reaching furthest right so far.
+        odd = new int[length];
+        for (int i = 0, left = 0, right = -1; i < length; i++) {
+            int radius = i > right ? 1 : Math.min(odd[left + right - i], right - i + 1);
+            while (i - radius >= 0 && i + radius < length && chars[i - radius] == chars[i + radius])
+                radius++;
+            odd[i] = radius;
+            if (i + radius - 1 > right) {
+                left = i - radius + 1;
+                right = i + radius - 1;
+            }
+        }
+
+        even = new int[length];
+        for (int i = 0, left = 0, right = -1; i < length; i++) {
+            int radius = i > right ? 0 : Math.min(even[left + right - i + 1], right - i + 1);
+            while (i - radius - 1 >= 0 && i + radius < length && chars[i - radius - 1] == chars[i + radius])
+                radius++;
+            even[i] = radius;
+            if (i + radius - 1 > right) {
+                left = i - radius;
+                right = i + radius - 1;
+            }
+        }
+    }
+
+    /**
+     * Count the palindromic substrings of the sanitized input, since every palindrome contains one shorter palindrome
+     * for every smaller radius around the same center.
+     *
+     * @return The number of palindromic substrings.
+     */
+    long count() {
+        long count = 0;
+        for (int i = 0; i < offsets.length; i++)
+            count += odd[i] + even[i];
+        return count;
+    }
+
+    /**
+     * Report the longest palindrome around every center, from left to right.
+     *
+     * @param onPalindrome Called with the range of the original input that every palindrome spans.
+     */
+    void forEachMaximal(StringTools.RangeConsumer onPalindrome) {
+        for (int i = 0; i < offsets.length; i++) {
+            if (even[i] > 0)
+                report(i - even[i], i + even[i], onPalindrome);
+            report(i - odd[i] + 1, i + odd[i], onPalindrome);
+        }
+    }
+
+    /**
+     * Report the longest palindrome of the input, or nothing if the sanitized input is empty. Of several palindromes
+     * that are equally long, the leftmost one is reported.
+     *
+     * @param onPalindrome Called with the range of the original input that the palindrome spans.
+     */
+    void longest(StringTools.RangeConsumer onPalindrome) {
+        int start = 0;
+        int end = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (2 * even[i] > end - start) {
+                start = i - even[i];
+                end = i + even[i];
+            }
+            if (2 * odd[i] - 1 > end - start) {
+                start = i - odd[i] + 1;
+                end = i + odd[i];
+            }
+        }
+        if (end > start)
+            report(start, end, onPalindrome);
+    }
+
+    /**
+     * Report a range of the sanitized input as the range of the original input it was sanitized from.
+     */
+    private void report(int start, int end, StringTools.RangeConsumer onPalindrome) {
+        onPalindrome.accept(offsets[start], offsets[end - 1] + 1);
+    }
+}
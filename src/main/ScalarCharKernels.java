@@ -0,0 +1,57 @@
+package main;
+
+/**
+ * The kernels, one char at a time.
+ */
+final class ScalarCharKernels extends CharKernels {
+    static final ScalarCharKernels INSTANCE = new ScalarCharKernels();
+
+    private ScalarCharKernels() {}
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    public int mirroredPrefix(char[] chars, int leftFrom, int rightTo, int length, char[] stops) {
+        for (int i = 0; i < length; i++) {
+            char left = chars[leftFrom + i];
+            char right = chars[rightTo - 1 - i];
+            if (left >= 128 || right >= 128 || foldAscii(left) != foldAscii(right))
+                return i;
+            for (char stop : stops)
+                if (left == stop || right == stop)
+                    return i;
+        }
+        return length;
+    }
+
+    @Override
+    public int indexOf(char[] chars, int from, int to, char target) {
+        for (int i = from; i < to; i++)
+            if (chars[i] == target)
+                return i;
+        return to;
+    }
+
+    @Override
+    public boolean isLatin1(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (chars[i] >= 256)
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isZero(int[] counts) {
+        for (int count : counts)
+            if (count != 0)
+                return false;
+        return true;
+    }
+
+    private static char foldAscii(char character) {
+        return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
+    }
+}
@@ -1,88 +1,304 @@
 package main;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A collection of methods that can be run on strings.
  */
 public class StringTools {
-    public static final Set<Character> punctuation = new PunctuationSet();
+    public static final CharClass punctuation = TextRules.DEFAULT.punctuation();
+
+    // The counter used by anagramChecker. Each thread gets its own so that it can be reused without any locking.
+    private static final ThreadLocal<CharCounter> ANAGRAM_COUNTER = ThreadLocal.withInitial(CharCounter::new);
+
+    // The flat table of Latin-1 counts used by anagramChecker with the vectorized kernels.
+    private static final ThreadLocal<int[]> LATIN1_COUNTS = ThreadLocal.withInitial(() -> new int[256]);
 
     /**
-     * Sanitize a string for use in palindrome checkers.
-     * @implNote Removes all spaces and makes the string lowercase.
-     * @param input The input string.
-     * @return The sanitized string.
+     * Fold the case of a char for use in palindrome checkers.
+     *
+     * @param character The char to fold.
+     * @return The lowercase version of the char.
+     */
+    static char foldPalindromeChar(char character) {
+        // Most input is ASCII, which we can fold without going through the Unicode tables.
+        if (character < 128)
+            return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
+        return Character.toLowerCase(character);
+    }
+
+    /**
+     * Determine whether a given char sequence is a palindrome, without copying it.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), and allocates nothing.
+     * @implNote Spaces are skipped and case is folded as the sequence is walked, which gives the same results as
+     * removing all spaces and making the input lowercase beforehand. Case is folded char by char, so the few
+     * context-dependent mappings of String.toLowerCase() (such as the Greek final sigma) are not applied.
+     * @param input The char sequence to test for whether it's a palindrome (a String, StringBuilder, CharBuffer, ...).
+     * @return Whether the input is a palindrome.
+     */
+    public static boolean isPalindrome(CharSequence input) {
+        return isPalindrome(input, TextRules.DEFAULT);
+    }
+
+    /**
+     * Determine whether a given char sequence is a palindrome, without copying it.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), and allocates nothing.
+     * @implNote The separators and ignorable characters of the rules are skipped, and case is folded as the sequence
+     * is walked. With the vectorized CharKernels, long runs of ASCII chars from either end are compared a whole window
+     * at a time.
+     * @param input The char sequence to test for whether it's a palindrome.
+     * @param rules The rules deciding which characters to skip.
+     * @return Whether the input is a palindrome.
      */
-    private static String cleanPalindromeString(String input) {
-        input = input.replaceAll(" ", "");
-        input = input.toLowerCase();
-        return input;
+    public static boolean isPalindrome(CharSequence input, TextRules rules) {
+        // Walk two indices inward from either end of the input. Skipped characters are stepped over, and every other
+        // pair of chars is compared. If they are not the same then we've determined that the input is not a palindrome
+        // and do not need to proceed any further. Once the indices meet every char has been tested against its
+        // complementary char, so the input is a palindrome.
+        CharClass skipped = rules.palindromeSkipped();
+        CharKernels kernels = CharKernels.best();
+        char[] windows = kernels.isVectorized() ? CharKernels.windows() : null;
+        int left = 0;
+        int right = input.length() - 1;
+
+        // The number of chars to compare one by one before trying the vectorized kernel again.
+        int scalarSteps = 0;
+        while (left < right) {
+            // While the indices are far enough apart, copy a window from either end and compare them all at once. The
+            // kernel stops at the first pair it can't settle on its own (a skipped or non-ASCII char, or a mismatch),
+            // which is left to the char by char comparison below.
+            if (windows != null && scalarSteps == 0 && right - left + 1 >= 2 * CharKernels.WINDOW) {
+                CharKernels.getChars(input, left, left + CharKernels.WINDOW, windows, 0);
+                CharKernels.getChars(input, right + 1 - CharKernels.WINDOW, right + 1, windows, CharKernels.WINDOW);
+                int matched = kernels.mirroredPrefix(
+                        windows, 0, windows.length, CharKernels.WINDOW, skipped.asciiMembers()
+                );
+                left += matched;
+                right -= matched;
+                if (matched < CharKernels.WINDOW)
+                    scalarSteps = CharKernels.WINDOW;
+                continue;
+            }
+            if (scalarSteps > 0)
+                scalarSteps--;
+
+            int leftSkip = skipped.matchAt(input, left);
+            if (leftSkip > 0) {
+                left += leftSkip;
+                continue;
+            }
+
+            int rightSkip = skipped.matchBefore(input, right + 1);
+            if (rightSkip > 0) {
+                right -= rightSkip;
+                continue;
+            }
+
+            char leftChar = input.charAt(left);
+            char rightChar = input.charAt(right);
+            if (leftChar != rightChar && foldPalindromeChar(leftChar) != foldPalindromeChar(rightChar))
+                return false;
+            left++;
+            right--;
+        }
+        return true;
     }
-    
+
     /**
      * Determine whether a given input string is a palindrome.
      *
      * @implSpec Runs in O(n) where n is input.length().
-     * @implNote Implemented iteratively.
+     * @implNote Implemented iteratively, see isPalindrome.
      * @param input The input string to test for whether it's a palindrome.
      * @return Whether the input string is a palindrome.
      */
     public static boolean palindromeIterative(String input) {
-        // Sanitize the input for palinrome checking.
-        input = cleanPalindromeString(input);
-        System.out.println(input);
-        
-        if (input.length() <= 1)
-            return true;
-
-        // Create an array of characters for the input to save on lookups for chars.
-        char[] inputCharArray = input.toCharArray();
+        return isPalindrome(input);
+    }
 
-        // Let i be an offset from the start and end of the string. We then compare the i-th index char from the left
-        // to the i-th index char on the right. If they are not the same then we've determined that this string is not
-        // a palindrome and do not need to proceed any further. If we make it up to the point where we've finished
-        // checking the left half of the string (i = floor(input length / 2)), we can stop since we've tested every char
-        // against its complementary right-side char.
-        for (int i = 0; i < inputCharArray.length / 2; i++)
-            if (inputCharArray[i] != inputCharArray[input.length() - 1 - i])
-                return false;
+    /**
+     * Sanitize a char sequence for use in palindrome checkers.
+     *
+     * @implNote Removes the characters that the rules skip and folds the case of every char, the same way isPalindrome
+     * does as it goes.
+     * @param input The input char sequence.
+     * @param rules The rules deciding which characters to remove.
+     * @return An exactly sized buffer holding the sanitized chars.
+     */
+    static char[] cleanPalindromeChars(CharSequence input, TextRules rules) {
+        // Count the chars that will be kept first, so that only a single buffer of the right size has to be allocated.
+        CharClass skipped = rules.palindromeSkipped();
+        int length = 0;
+        for (int i = 0; i < input.length(); i++) {
+            int skip = skipped.matchAt(input, i);
+            if (skip == 0)
+                length++;
+            else
+                i += skip - 1;
+        }
 
-        // All the chars have been tested against their complementary right-side chars. The string has been determined
-        // to be a palindrome.
-        return true;
+        char[] buffer = new char[length];
+        int position = 0;
+        for (int i = 0; i < input.length(); i++) {
+            int skip = skipped.matchAt(input, i);
+            if (skip == 0)
+                buffer[position++] = foldPalindromeChar(input.charAt(i));
+            else
+                i += skip - 1;
+        }
+        return buffer;
     }
 
     /**
      * Determine whether a given input string is a palindrome.
      * Time complexity: O(n), where n is input.length().
      *
-     * @implNote Implemented recursively.
+     * @implNote Implemented recursively. The input is sanitized once into a shared buffer, and the recursion then
+     * splits the left half of the buffer in two at every level, so it only ever goes O(log n) levels deep and can handle
+     * inputs of any length.
      * @implSpec Runs in O(n) where n is the length of the input string.
      * @param input The input string to test for whether it's a palindrome.
      * @return Whether the input string is a palindrome.
      */
     public static boolean palindromeRecursive(String input) {
-        // Sanitize the input for palinrome checking.
-        input = cleanPalindromeString(input);
+        return palindromeRecursive(input, TextRules.DEFAULT);
+    }
+
+    /**
+     * Determine whether a given input string is a palindrome, skipping the separators and ignorable characters of a
+     * set of rules.
+     *
+     * @see StringTools#palindromeRecursive(String)
+     * @param input The input string to test for whether it's a palindrome.
+     * @param rules The rules deciding which characters to skip.
+     * @return Whether the input string is a palindrome.
+     */
+    public static boolean palindromeRecursive(String input, TextRules rules) {
+        char[] sanitized = cleanPalindromeChars(input, rules);
+        return mirroredRecursive(sanitized, 0, sanitized.length / 2);
+    }
 
-        // All strings of length 0 or 1 are palindromes.
-        // This case will occur when the input string is very short, or when the recursion has whittled down the string
-        // to length 0 or 1. It is our base case.
-        if (input.length() <= 1)
+    /**
+     * Determine whether every char in a range of the left half of a buffer matches its complementary char in the right
+     * half.
+     *
+     * @param buffer The sanitized buffer to test.
+     * @param from The index of the first char of the range (inclusive).
+     * @param to The index of the last char of the range (exclusive).
+     * @return Whether every char in the range matches its complementary char.
+     */
+    private static boolean mirroredRecursive(char[] buffer, int from, int to) {
+        // Empty ranges trivially match. This case will occur when the input string is very short. It is our first base
+        // case.
+        if (to - from <= 0)
             return true;
 
-        // If the string has not yet reached the length at which it is guaranteed to be a palindrome, see if we can
-        // whittle it down any further. If the leftmost char of the string does NOT match the rightmost char of the
-        // string, the entire string is definitely not a palindrome, so we can stop and return false. Otherwise, whittle
-        // away one char from the left and right of the string and recurse.
-        else if (input.charAt(0) != input.charAt(input.length() - 1))
-            return false;
-        // Recurse with a string that has one char from the left and right side stripped away.
-        return palindromeRecursive(input.substring(1, input.length() - 1));
+        // A range of one char is checked directly against its complementary right-side char. It is our second base
+        // case.
+        if (to - from == 1)
+            return buffer[from] == buffer[buffer.length - 1 - from];
+
+        // Otherwise, split the range in half and check each half on its own. If the first half already doesn't match,
+        // the entire string is definitely not a palindrome and the second half doesn't need to be checked.
+        int middle = (from + to) >>> 1;
+        return mirroredRecursive(buffer, from, middle) && mirroredRecursive(buffer, middle, to);
+    }
+
+    /**
+     * Find the longest palindromic substring of a char sequence.
+     *
+     * @see StringTools#longestPalindrome(CharSequence, TextRules)
+     * @param input The char sequence to search.
+     * @return The longest palindrome, or an empty string if the input only holds spaces.
+     */
+    public static String longestPalindrome(CharSequence input) {
+        return longestPalindrome(input, TextRules.DEFAULT);
+    }
+
+    /**
+     * Find the longest palindromic substring of a char sequence.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), using Manacher's algorithm.
+     * @implNote The input is sanitized like palindromeRecursive does, and the palindrome is the longest one of the
+     * sanitized input, so skipped characters don't count towards its length. It is returned as it appears in the
+     * input, from its first kept char to its last one: "Step on no pets please" gives "Step on no pets". Of several
+     * palindromes that are equally long, the leftmost one is returned.
+     * @param input The char sequence to search.
+     * @param rules The rules deciding which characters to skip.
+     * @return The longest palindrome, or an empty string if the input only holds skipped characters.
+     */
+    public static String longestPalindrome(CharSequence input, TextRules rules) {
+        int[] range = new int[2];
+        new PalindromeCenters(input, rules).longest((start, end) -> {
+            range[0] = start;
+            range[1] = end;
+        });
+        return input.subSequence(range[0], range[1]).toString();
+    }
+
+    /**
+     * Count the palindromic substrings of a char sequence.
+     *
+     * @see StringTools#palindromeCount(CharSequence, TextRules)
+     * @param input The char sequence to search.
+     * @return The number of palindromic substrings.
+     */
+    public static long palindromeCount(CharSequence input) {
+        return palindromeCount(input, TextRules.DEFAULT);
+    }
+
+    /**
+     * Count the palindromic substrings of a char sequence.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), using Manacher's algorithm.
+     * @implNote Substrings are those of the sanitized input, as for longestPalindrome, and are counted once for every
+     * place they occur in it. Every char is a palindrome on its own, so the count is at least the number of chars that
+     * aren't skipped.
+     * @param input The char sequence to search.
+     * @param rules The rules deciding which characters to skip.
+     * @return The number of palindromic substrings.
+     */
+    public static long palindromeCount(CharSequence input, TextRules rules) {
+        return new PalindromeCenters(input, rules).count();
+    }
+
+    /**
+     * Report every maximal palindrome of a char sequence.
+     *
+     * @see StringTools#maximalPalindromes(CharSequence, TextRules, RangeConsumer)
+     * @param input The char sequence to search.
+     * @param onPalindrome Called with the start (inclusive) and end (exclusive) of every maximal palindrome.
+     */
+    public static void maximalPalindromes(CharSequence input, RangeConsumer onPalindrome) {
+        maximalPalindromes(input, TextRules.DEFAULT, onPalindrome);
+    }
+
+    /**
+     * Report every maximal palindrome of a char sequence: the longest palindrome around each center, which every
+     * other palindrome with that center is a part of.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), using Manacher's algorithm.
+     * @implNote Palindromes are those of the sanitized input, as for longestPalindrome. They are reported from left to
+     * right by center, with the centers on chars and those between two equal chars in between, as ranges of the
+     * original input that start at their first kept char and end after their last one.
+     * @param input The char sequence to search.
+     * @param rules The rules deciding which characters to skip.
+     * @param onPalindrome Called with the start (inclusive) and end (exclusive) of every maximal palindrome.
+     */
+    public static void maximalPalindromes(CharSequence input, TextRules rules, RangeConsumer onPalindrome) {
+        new PalindromeCenters(input, rules).forEachMaximal(onPalindrome);
     }
 
     /**
@@ -90,6 +306,8 @@ public class StringTools {
      *
      * @implSpec Runs in O(s1 + s2) based on combined input length of strings. In other words, the method has
      * linear runtime.
+     * @implNote Chars are counted in a primitive CharCounter that is reused by the calling thread, so nothing is boxed,
+     * and nothing at all is allocated when the strings only hold Latin-1 chars.
      * @param str1 The first string to check.
      * @param str2 The second string to check.
      * @return Whether one string is the anagram of another string
@@ -98,41 +316,183 @@ public class StringTools {
         if (str1.length() != str2.length())
             return false;
 
-        // Create hashmaps to use as counters for character counts in both the strings.
-        Map<Character, Integer> str1CharCounter = new HashMap<>();
-        Map<Character, Integer> str2CharCounter = new HashMap<>();
+        // Use a single counter for both strings: each char of the first string ticks its count up, and each char of the
+        // second string ticks its count down. The strings are anagrams of each other exactly when every count ends up
+        // back at zero.
+        CharCounter counter = ANAGRAM_COUNTER.get();
+        counter.clear();
+        CharKernels kernels = CharKernels.best();
+        if (kernels.isVectorized())
+            return vectorizedAnagramChecker(str1, str2, kernels, counter);
+        for (int i = 0; i < str1.length(); i++) {
+            counter.add(str1.charAt(i), 1);
+            counter.add(str2.charAt(i), -1);
+        }
 
-        // Convert the strings to arrays of characters.
-        char[] str1Chars = str1.toCharArray();
-        char[] str2Chars = str2.toCharArray();
+        // The counter keeps track of how many chars have a non-zero count, so we don't need to look at the counts one by
+        // one to know whether they all cancelled out.
+        return counter.isZero();
+    }
 
-        // Tick up the proper counter for each character in string 1.
-        for (Character str1Char : str1Chars)
-            str1CharCounter.put(str1Char, str1CharCounter.getOrDefault(str1Char, 0) + 1);
+    /**
+     * Determine whether a string is an anagram of another string of the same length, using the vectorized kernels.
+     *
+     * @implNote Both strings are copied a window at a time. When both windows only hold Latin-1 chars, which the kernel
+     * checks a whole vector at a time, their chars are counted straight into a flat table without any of the
+     * bookkeeping of CharCounter. Other windows go through the counter as usual. At the end, the table is checked for
+     * zeros by the kernel, and only merged into the counter if it has any counts left.
+     * @param counter A cleared counter.
+     */
+    private static boolean vectorizedAnagramChecker(
+            String str1, String str2, CharKernels kernels, CharCounter counter
+    ) {
+        char[] windows = CharKernels.windows();
+        int[] latin1 = LATIN1_COUNTS.get();
+        Arrays.fill(latin1, 0);
+        for (int from = 0; from < str1.length(); from += CharKernels.WINDOW) {
+            int length = Math.min(CharKernels.WINDOW, str1.length() - from);
+            str1.getChars(from, from + length, windows, 0);
+            str2.getChars(from, from + length, windows, CharKernels.WINDOW);
+
+            if (kernels.isLatin1(windows, 0, length)
+                    && kernels.isLatin1(windows, CharKernels.WINDOW, CharKernels.WINDOW + length)) {
+                // The Vector API can't scatter increments to a table, so the counting itself stays scalar.
+                for (int i = 0; i < length; i++) {
+                    latin1[windows[i]]++;
+                    latin1[windows[CharKernels.WINDOW + i]]--;
+                }
+            }
+            else {
+                for (int i = 0; i < length; i++) {
+                    counter.add(windows[i], 1);
+                    counter.add(windows[CharKernels.WINDOW + i], -1);
+                }
+            }
+        }
 
-        // Tick up the proper counter for each character in string 2.
-        for (Character str2Char : str2Chars)
-            str2CharCounter.put(str2Char, str2CharCounter.getOrDefault(str2Char, 0) + 1);
+        if (!kernels.isZero(latin1)) {
+            for (char character = 0; character < latin1.length; character++)
+                if (latin1[character] != 0)
+                    counter.add(character, latin1[character]);
+        }
+        return counter.isZero();
+    }
 
-        // If there is a different number of unique characters in the first string than there are in the second, it's
-        // not possible for the strings to be anagrams of each other.
-        if (str1CharCounter.size() != str2CharCounter.size())
-            return false;
+    /**
+     * Determine whether a string is an anagram of another string, ignoring the ignorable characters of a set of rules.
+     *
+     * @implSpec Runs in O(s1 + s2) based on combined input length of strings.
+     * @param str1 The first string to check.
+     * @param str2 The second string to check.
+     * @param rules The rules deciding which characters to ignore.
+     * @return Whether one string is the anagram of another string, once the ignorable characters are removed.
+     */
+    public static boolean anagramChecker(String str1, String str2, TextRules rules) {
+        CharClass ignorable = rules.ignorable();
+        if (ignorable.isEmpty())
+            return anagramChecker(str1, str2);
+
+        // The strings may have different lengths once the ignorable characters are removed, so they can't be walked
+        // side by side. Tick the counts up for the first string, then down for the second.
+        CharCounter counter = ANAGRAM_COUNTER.get();
+        counter.clear();
+        countChars(str1, ignorable, 1, counter);
+        countChars(str2, ignorable, -1, counter);
+        return counter.isZero();
+    }
 
-        // Compare each element in the first hashmap to the corresponding value in the second hashmap.
-        // If a given character appears a different number of times in the first and second string, that means that it
-        // is not an anagram. Since we already ensured that there are the same number of unique characters in each
-        // string, we only need to check against every corresponding character for one of the hashmaps, because if the
-        // second hashmap has different characters than the first hashmap then the counts are guaranteed to be
-        // different as well.
-        for (Map.Entry<Character, Integer> count : str1CharCounter.entrySet()) {
-            if (!count.getValue().equals(str2CharCounter.getOrDefault(count.getKey(), -1)))
-                return false;
+    /**
+     * Add every char of a string that isn't ignorable to a counter.
+     *
+     * @param input The string whose chars to count.
+     * @param ignorable The characters to skip.
+     * @param delta The amount to add to the count of each char.
+     * @param counter The counter to add to.
+     */
+    private static void countChars(CharSequence input, CharClass ignorable, int delta, CharCounter counter) {
+        for (int i = 0; i < input.length(); i++) {
+            int skip = ignorable.matchAt(input, i);
+            if (skip == 0)
+                counter.add(input.charAt(i), delta);
+            else
+                i += skip - 1;
         }
+    }
 
-        // Since all checks have been met, if the strings were not anagrams of each other false would already have been
-        // returned. Reaching this step means that we're certain that the strings are anagrams of each other.
-        return true;
+    /**
+     * Find every window of a text that is an anagram of a pattern.
+     *
+     * @implSpec Runs in O(n + m) where n is text.length() and m is pattern.length(), and uses constant memory on top of
+     * a CharCounter sized by the pattern's distinct chars.
+     * @implNote The window slides over the text one char at a time. The counter starts out holding minus the counts of
+     * the pattern's chars; the char entering the window is ticked up and the char leaving it ticked down, and the
+     * window is an anagram of the pattern whenever every count is back at zero. Matches are reported as they are found,
+     * so nothing has to be collected. An empty pattern matches at every offset from 0 to n.
+     * @param text The text to search.
+     * @param pattern The pattern to find anagrams of.
+     * @param onMatch Called with the offset of the first char of every matching window, in increasing order.
+     */
+    public static void anagramOccurrences(CharSequence text, CharSequence pattern, IntConsumer onMatch) {
+        int windowLength = pattern.length();
+        if (windowLength > text.length())
+            return;
+
+        // A fresh counter is used (instead of the one anagramChecker reuses) since onMatch may call back into us.
+        CharCounter counter = new CharCounter();
+        for (int i = 0; i < windowLength; i++) {
+            counter.add(pattern.charAt(i), -1);
+            counter.add(text.charAt(i), 1);
+        }
+        if (counter.isZero())
+            onMatch.accept(0);
+
+        for (int i = windowLength; i < text.length(); i++) {
+            counter.add(text.charAt(i), 1);
+            counter.add(text.charAt(i - windowLength), -1);
+            if (counter.isZero())
+                onMatch.accept(i - windowLength + 1);
+        }
+    }
+
+    /**
+     * Compute the anagram signature of a word.
+     *
+     * @implNote The signature is the word's chars in sorted order. Two words are anagrams of each other (in the sense of
+     * anagramChecker) exactly when their signatures are equal.
+     * @param word The word to compute the signature of.
+     * @return The signature of the word.
+     */
+    public static String anagramSignature(String word) {
+        char[] chars = word.toCharArray();
+        Arrays.sort(chars);
+        return new String(chars);
+    }
+
+    /**
+     * Group words into classes of words that are anagrams of each other.
+     *
+     * @implSpec Runs in O(n * k log k) where n is the number of words and k is the length of the longest word, spread
+     * over the common fork-join pool.
+     * @implNote The words are keyed by their anagramSignature into a single concurrent index from parallel workers.
+     * Neither the order of the classes nor the order of the words in a class is specified.
+     * @param words The words to group.
+     * @return The anagram classes. Every word is in exactly one class, and duplicate words are kept.
+     */
+    public static List<List<String>> anagramGroups(Stream<String> words) {
+        return new ArrayList<>(
+                words.parallel().collect(Collectors.groupingByConcurrent(StringTools::anagramSignature)).values()
+        );
+    }
+
+    /**
+     * Group words into classes of words that are anagrams of each other.
+     *
+     * @see StringTools#anagramGroups(Stream)
+     * @param words The words to group.
+     * @return The anagram classes.
+     */
+    public static List<List<String>> anagramGroups(Collection<String> words) {
+        return anagramGroups(words.parallelStream());
     }
 
     /**
@@ -172,6 +532,56 @@ public class StringTools {
         return newStr.toString();
     }
 
+    /**
+     * Insert many substrings into a string at once, with every index given relative to the original string.
+     *
+     * @implSpec Runs in O(n + s + k log k) where n is input.length(), s is the combined length of the substrings and k
+     * is the number of insertions. The insertions are sorted by where they go, and the output is then written in one
+     * pass into a buffer that is allocated with its exact final length, so it never has to grow.
+     * @implNote Each insertion goes where addSubstring would put it: after the char at its index, or at the end of the
+     * string if its index is the length of the string. Insertions that end up at the same place appear in the order
+     * they were given.
+     * @throws IndexOutOfBoundsException When the index of one of the insertions exceeds the length of the string, or is
+     * negative. The indices are all checked before anything is built.
+     * @param input The input string.
+     * @param insertions The substrings to insert, and the indices to insert them after.
+     * @return The string with every substring inserted.
+     */
+    public static String addSubstrings(String input, List<Insertion> insertions) throws IndexOutOfBoundsException {
+        // Check every index and work out the exact length of the result before building anything.
+        long length = input.length();
+        for (Insertion insertion : insertions) {
+            if (insertion.index() < 0 || insertion.index() > input.length())
+                throw new IndexOutOfBoundsException();
+            length += insertion.substring().length();
+        }
+        if (length > Integer.MAX_VALUE)
+            throw new OutOfMemoryError("The result is too long to fit in a String.");
+
+        // Sort the insertions by the offset they go at. The sort is stable, so ties keep the order they were given in.
+        Insertion[] sorted = insertions.toArray(new Insertion[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(insertion -> insertionOffset(input, insertion.index())));
+
+        // Copy the runs of the input between the insertions, and the insertions themselves, in order.
+        StringBuilder output = new StringBuilder((int) length);
+        int copied = 0;
+        for (Insertion insertion : sorted) {
+            int offset = insertionOffset(input, insertion.index());
+            output.append(input, copied, offset).append(insertion.substring());
+            copied = offset;
+        }
+        return output.append(input, copied, input.length()).toString();
+    }
+
+    /**
+     * Find where addSubstring puts a substring that is inserted after an index.
+     *
+     * @return The offset of the first char of the substring in the result.
+     */
+    private static int insertionOffset(String input, int index) {
+        return Math.min(index + 1, input.length());
+    }
+
     /**
      * Determine length of a string.
      *
@@ -182,43 +592,83 @@ public class StringTools {
         return string.length();
     }
 
+    /**
+     * Count the number of non-overlapping occurrences of a substring in an input string.
+     *
+     * @implSpec Runs in O(n + m) where n is input.length() and m is substring.length().
+     * @implNote To count the same substring in many inputs, compile it once with SubstringPattern.compile instead.
+     * @throws IllegalArgumentException When the substring is empty.
+     * @param input The string containing occurrences of a given substring.
+     * @param substring The substring to count occurrences of.
+     * @return The number of occurrences of the substring in the overall string.
+     */
+    public static int occurrenceCounter(CharSequence input, String substring) throws IllegalArgumentException {
+        return occurrenceCounter(input, substring, OccurrenceMode.NON_OVERLAPPING);
+    }
+
     /**
      * Count the number of occurrences of a substring in an input string.
+     *
+     * @implSpec Runs in O(n + m) where n is input.length() and m is substring.length().
+     * @throws IllegalArgumentException When the substring is empty.
      * @param input The string containing occurrences of a given substring.
      * @param substring The substring to count occurrences of.
+     * @param mode Whether occurrences may overlap each other.
      * @return The number of occurrences of the substring in the overall string.
      */
-    public static int occurrenceCounter(String input, String substring){
-        int occurences = 0;
-
-        // A counter to determine our current position in the substring. When we begin to encounter a sequence of
-        // characters that matches that of the beginning of the substring, this will tick upwards until it reaches the
-        // length of the substring.
-        int progression = 0;
-        for (char character : input.toCharArray()) {
-            if (character == substring.charAt(progression)) {
-                if (progression == (substring.length() - 1)) {
-                    // We've matched up the full length of the substring worth of letters, which means we've found an
-                    // occurrence of the substring within the string. We can restart progressing from the start of the
-                    // substring and tick the number of occurrences that we've found so far up by 1.
-                    progression = 0;
-                    occurences++;
-                }
-                else {
-                    // We have matched up another letter between the string and substring, but we aren't quite at the
-                    // end of the substring, so we can't update our occurrence counter yet.
-                    progression++;
-                }
-            }
-            else {
-                // If we're no longer tracking along the substring, we must restart our progress.
-                progression = 0;
-            }
-        }
+    public static int occurrenceCounter(CharSequence input, String substring, OccurrenceMode mode)
+            throws IllegalArgumentException {
+        return SubstringPattern.compile(substring).count(input, mode);
+    }
+
+    /**
+     * Count the number of occurrences of a substring in an input string, using every core for long inputs.
+     *
+     * @implSpec Runs in O(n / p + m) where n is input.length(), m is substring.length() and p is the parallelism of the
+     * common fork-join pool.
+     * @implNote See SubstringPattern.parallelCount. The result is always the same as occurrenceCounter's.
+     * @throws IllegalArgumentException When the substring is empty.
+     * @param input The string containing occurrences of a given substring.
+     * @param substring The substring to count occurrences of.
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences of the substring in the overall string.
+     */
+    public static int parallelOccurrenceCounter(CharSequence input, String substring, OccurrenceMode mode)
+            throws IllegalArgumentException {
+        return SubstringPattern.compile(substring).parallelCount(input, mode);
+    }
+
+    /**
+     * Count the number of non-overlapping occurrences of several substrings in an input string, in a single pass.
+     *
+     * @implSpec Runs in O(n + m * a) where n is input.length(), m is the combined length of the substrings and a is the
+     * number of distinct chars in them.
+     * @implNote To count the same substrings in many inputs, compile them once with MultiSubstringPattern.compile
+     * instead.
+     * @throws IllegalArgumentException When one of the substrings is empty.
+     * @param input The string containing occurrences of the substrings.
+     * @param substrings The substrings to count occurrences of.
+     * @return The number of occurrences of each substring, in the order the substrings were given. Each count is the
+     * same as occurrenceCounter would give for that substring.
+     */
+    public static int[] multiOccurrenceCounter(CharSequence input, List<String> substrings)
+            throws IllegalArgumentException {
+        return multiOccurrenceCounter(input, substrings, OccurrenceMode.NON_OVERLAPPING);
+    }
 
-        // Now that we've progressed all the way through the string and caught all the occurrences as we traversed it, we
-        // can return our current occurrence counter's value
-        return occurences;
+    /**
+     * Count the number of occurrences of several substrings in an input string, in a single pass.
+     *
+     * @see StringTools#multiOccurrenceCounter(CharSequence, List)
+     * @throws IllegalArgumentException When one of the substrings is empty.
+     * @param input The string containing occurrences of the substrings.
+     * @param substrings The substrings to count occurrences of.
+     * @param mode Whether occurrences of a substring may overlap each other.
+     * @return The number of occurrences of each substring, in the order the substrings were given.
+     */
+    public static int[] multiOccurrenceCounter(CharSequence input, List<String> substrings, OccurrenceMode mode)
+            throws IllegalArgumentException {
+        return MultiSubstringPattern.compile(substrings).count(input, mode);
     }
 
     /**
@@ -226,78 +676,245 @@ public class StringTools {
      *
      * @implNote If the last character of the input string is a punctuation sign, the output string's last character
      * will also be the punctuation mark. This is to assert consistency with the assignment instruction's example.
-     * @throws InvalidSentenceException When there are multiple back to back separators in the string.
+     * @throws InvalidSentenceException When there are multiple back to back separators in the string, or when the
+     * string starts or ends with one.
      * @param sentence The sentence to have its words reversed.
      * @return The sentence with its words in reverse order.
      */
     public static String sentenceReversal(String sentence) throws InvalidSentenceException{
-        // If the string is empty we don't need to do any work.
-        if (sentence.isEmpty())
-            return sentence;
-
-        // Create an array to store the separated list of words in the sentence, and a flag for whether the input string
-        // originally ended with a period.
-        char endingPunctuation = sentence.charAt(sentence.length() - 1);
-        if (!punctuation.contains(sentence.charAt(sentence.length() - 1)))
-            endingPunctuation = ' ';
-
-        String[] words = new String[occurrenceCounter(sentence, String.valueOf(' ')) + 1];
-
-        // Iterate through the string and store all the separate words in the words array.
-        int occurrencesSoFar = 0;
-        StringBuilder currentWord = new StringBuilder();
-        for (char character : sentence.toCharArray()) {
-            if (character == ' ') {
-                if (currentWord.isEmpty())
-                    throw new InvalidSentenceException();
-                words[occurrencesSoFar++] = currentWord.toString();
-                currentWord.setLength(0);
-            }
-            else if (!punctuation.contains(character))
-                currentWord.append(character);
+        StringBuilder output = new StringBuilder(sentence.length());
+        try {
+            sentenceReversal(sentence, output);
         }
-
-        // If the last word ends in a period, strip off the period. We'll add a period to the end of the output string
-        // later.
-        if (currentWord.charAt(currentWord.length() - 1) == '.') {
-            currentWord.setLength(currentWord.length() - 1);
+        catch (IOException e) {
+            // StringBuilders never throw IOExceptions.
+            throw new UncheckedIOException(e);
         }
-        words[words.length - 1] = currentWord.toString();
-
-        // Now we reverse the order of the words array by swapping elements.
-        for (int i = 0; i < words.length; i++) {
-            if (i < words.length / 2) {
-                String temp = words[i];
-                words[i] = words[words.length - 1 - i];
-                words[words.length - 1 - i] = temp;
+        return output.toString();
+    }
+
+    /**
+     * Reverse the words of a given sentence, writing the result to an output.
+     *
+     * @see StringTools#sentenceReversal(CharSequence, Appendable, TextRules)
+     * @throws InvalidSentenceException When there are multiple back to back separators in the sentence, or when the
+     * sentence starts or ends with one.
+     * @throws IOException When writing to the output fails.
+     * @param sentence The sentence to have its words reversed.
+     * @param output Where to write the sentence with its words in reverse order.
+     */
+    public static void sentenceReversal(CharSequence sentence, Appendable output)
+            throws InvalidSentenceException, IOException {
+        sentenceReversal(sentence, output, TextRules.DEFAULT);
+    }
+
+    /**
+     * Reverse the words of a given sentence, writing the result to an output.
+     *
+     * @implSpec Runs in O(n) where n is sentence.length(), in a single pass over the sentence. Only the boundaries of
+     * the words are stored, as int offsets into the sentence.
+     * @implNote With the default rules, gives the same result as sentenceReversal(String). The words swap places while
+     * the separators between them stay where they were, punctuation marks and ignorable characters are dropped from
+     * the words, and a punctuation mark ending the sentence is kept at the end. The whole sentence is checked before
+     * anything is written, so nothing is written to the output if the sentence is invalid.
+     * @throws InvalidSentenceException When there are multiple back to back separators in the sentence, or when the
+     * sentence starts or ends with one.
+     * @throws IOException When writing to the output fails.
+     * @param sentence The sentence to have its words reversed.
+     * @param output Where to write the sentence with its words in reverse order.
+     * @param rules The rules deciding which characters are separators, punctuation marks and ignorable.
+     */
+    public static void sentenceReversal(CharSequence sentence, Appendable output, TextRules rules)
+            throws InvalidSentenceException, IOException {
+        new SentenceReverser(rules).reverse(sentence, sentence.length(), output);
+    }
+
+    /**
+     * Reverse the words of every sentence of a document, writing the result to an output.
+     *
+     * @see StringTools#sentenceReversals(Reader, Appendable, TextRules)
+     * @throws InvalidSentenceException When one of the sentences is invalid.
+     * @throws IOException When reading the document or writing to the output fails.
+     * @param document The document to read the sentences from.
+     * @param output Where to write the reversed sentences.
+     */
+    public static void sentenceReversals(Reader document, Appendable output)
+            throws InvalidSentenceException, IOException {
+        sentenceReversals(document, output, TextRules.DEFAULT);
+    }
+
+    /**
+     * Reverse the words of every sentence of a document, writing the result to an output.
+     *
+     * @implSpec Runs in O(n) where n is the length of the document, and only ever holds one sentence in memory.
+     * @implNote A sentence ends at a line break, or at a punctuation mark that is followed by a separator. Every
+     * sentence is reversed as by sentenceReversal, and the line breaks and separators between sentences are written
+     * out unchanged.
+     * @throws InvalidSentenceException When one of the sentences is invalid. The sentences before it have already
+     * been written by then.
+     * @throws IOException When reading the document or writing to the output fails.
+     * @param document The document to read the sentences from.
+     * @param output Where to write the reversed sentences.
+     * @param rules The rules deciding which characters are separators, punctuation marks and ignorable.
+     */
+    public static void sentenceReversals(Reader document, Appendable output, TextRules rules)
+            throws InvalidSentenceException, IOException {
+        SentenceReverser reverser = new SentenceReverser(rules);
+        CharClass separators = rules.separators();
+        StringBuilder sentence = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int read = document.read(buffer); read != -1; read = document.read(buffer)) {
+            for (int i = 0; i < read; i++) {
+                char character = buffer[i];
+                if (character == '\n') {
+                    // Keep a carriage return that came before the line break with the line break.
+                    int length = sentence.length();
+                    if (length > 0 && sentence.charAt(length - 1) == '\r')
+                        length--;
+                    reverser.reverse(sentence, length, output);
+                    output.append(sentence, length, sentence.length()).append(character);
+                    sentence.setLength(0);
+                    continue;
+                }
+
+                // A separator right after a punctuation mark ends the sentence.
+                sentence.append(character);
+                int separatorLength = separators.matchBefore(sentence, sentence.length());
+                int length = sentence.length() - separatorLength;
+                if (separatorLength > 0 && rules.punctuation().matchBefore(sentence, length) > 0) {
+                    reverser.reverse(sentence, length, output);
+                    output.append(sentence, length, sentence.length());
+                    sentence.setLength(0);
+                }
             }
         }
+        reverser.reverse(sentence, sentence.length(), output);
+    }
+
+    /**
+     * Reverses the words of sentences, reusing its storage from one sentence to the next.
+     */
+    private static final class SentenceReverser {
+        private final CharClass separators;
+        private final CharClass punctuation;
 
-        // Now we build back the output string by adding the separator between elements.
-        StringBuilder output = new StringBuilder();
-        for (String word : words) {
-            output.append(word);
-            output.append(' ');
+        // The characters that are left out of the words when they are written.
+        private final CharClass dropped;
+
+        // The start and end offsets of every word of the current sentence, one after the other.
+        private int[] boundaries = new int[32];
+
+        private SentenceReverser(TextRules rules) {
+            separators = rules.separators();
+            punctuation = rules.punctuation();
+            dropped = rules.ignorable().isEmpty() ? punctuation : punctuation.union(rules.ignorable());
         }
 
-        // Cut off the trailing separator.
-        output.setLength(output.length() - 1);
+        /**
+         * Reverse the words of the start of a sentence, writing the result to an output.
+         *
+         * @see StringTools#sentenceReversal(CharSequence, Appendable, TextRules)
+         * @param length The number of chars at the start of the sentence to reverse.
+         */
+        private void reverse(CharSequence sentence, int length, Appendable output)
+                throws InvalidSentenceException, IOException {
+            // If the sentence is empty we don't need to do any work.
+            if (length == 0)
+                return;
+
+            // Iterate through the sentence once and record where every word starts and ends. Dropped characters are
+            // left out of the words when they are written, but a word made up of nothing else would leave two
+            // separators back to back.
+            int wordCount = 0;
+            int wordStart = 0;
+            boolean wordHasChars = false;
+            for (int i = 0; i <= length; i++) {
+                int separatorLength = i == length ? 1 : separators.matchAt(sentence, i);
+                if (separatorLength > 0) {
+                    if (!wordHasChars)
+                        throw new InvalidSentenceException();
+                    if (2 * wordCount + 2 > boundaries.length)
+                        boundaries = Arrays.copyOf(boundaries, boundaries.length * 2);
+                    boundaries[2 * wordCount] = wordStart;
+                    boundaries[2 * wordCount + 1] = i;
+                    wordCount++;
+                    i += separatorLength - 1;
+                    wordStart = i + 1;
+                    wordHasChars = false;
+                    continue;
+                }
 
-        // Append a period if the string originally ended with a period.
-        if (endingPunctuation != ' ')
-            output.append(endingPunctuation);
+                int droppedLength = dropped.matchAt(sentence, i);
+                if (droppedLength == 0)
+                    wordHasChars = true;
+                else
+                    i += droppedLength - 1;
+            }
 
-        return output.toString();
+            // Now write the words back out in reverse order. The separator that followed the n-th word of the sentence
+            // follows the n-th word of the output. Each word is written as the runs of chars between its dropped
+            // characters, so that nothing has to be copied first.
+            for (int position = 0; position < wordCount; position++) {
+                int word = wordCount - 1 - position;
+                int runStart = boundaries[2 * word];
+                int wordEnd = boundaries[2 * word + 1];
+                for (int i = runStart; i < wordEnd; i++) {
+                    int droppedLength = dropped.matchAt(sentence, i);
+                    if (droppedLength > 0) {
+                        output.append(sentence, runStart, i);
+                        i += droppedLength - 1;
+                        runStart = i + 1;
+                    }
+                }
+                output.append(sentence, runStart, wordEnd);
+                if (position < wordCount - 1)
+                    output.append(sentence, boundaries[2 * position + 1], boundaries[2 * position + 2]);
+            }
+
+            // Append the punctuation mark if the sentence originally ended with one.
+            int endingLength = punctuation.matchBefore(sentence, length);
+            if (endingLength > 0)
+                output.append(sentence, length - endingLength, length);
+        }
     }
 
+    /**
+     * Receives ranges of a char sequence, such as the palindromes found by maximalPalindromes.
+     */
+    @FunctionalInterface
+    public interface RangeConsumer {
+        /**
+         * Receive a range.
+         *
+         * @param start The index of the first char of the range (inclusive).
+         * @param end The index of the last char of the range (exclusive).
+         */
+        void accept(int start, int end);
+    }
+
+    /**
+     * A substring to insert into a string, and the index of the char of the original string to insert it after.
+     *
+     * @see StringTools#addSubstrings(String, List)
+     * @param index The index to insert the substring after.
+     * @param substring The substring to insert.
+     */
+    public record Insertion(int index, String substring) {}
+
     public static class InvalidSentenceException extends Exception {}
 
-    public static class PunctuationSet extends HashSet<Character> {
-        public PunctuationSet() {
-            super();
-            add('.');
-            add('?');
-            add('!');
-        }
+    /**
+     * How occurrences of a substring are counted.
+     */
+    public enum OccurrenceMode {
+        /**
+         * Every occurrence is counted, even if it shares chars with another one ("aa" occurs twice in "aaa").
+         */
+        OVERLAPPING,
+        /**
+         * Occurrences are counted from left to right, and each one starts after the previous one ended ("aa" occurs
+         * once in "aaa").
+         */
+        NON_OVERLAPPING
     }
 }
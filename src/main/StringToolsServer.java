@@ -0,0 +1,170 @@
+package main;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running server that runs StringTools operations for local clients, so that they don't pay for starting and
+ * warming up a JVM on every request.
+ *
+ * <p>The server listens on a loopback TCP port or on a Unix-domain socket, never on an external interface. Requests
+ * and responses are frames (see Frames): a big-endian 32-bit length followed by that many bytes of UTF-8. A request
+ * holds a job and a response holds its line of output, both exactly as in BatchRunner, so for instance the request
+ * {@code occurrenceCounter<TAB>banana<TAB>an} gets the response {@code OK<TAB>2}. A client may send any number of
+ * requests without waiting for their responses; the responses come back in the order of the requests.
+ *
+ * @implNote Every connection is handled by a thread of its own, which reads a request, runs it and writes the
+ * response. The responses are buffered and only flushed once every request that has already arrived is answered, so
+ * pipelined requests share their writes. On Java 21 and later, the threads are virtual threads, which makes idle
+ * connections cheap; since this code targets Java 17, the virtual thread executor is looked up reflectively, and a
+ * cached pool of platform threads is used when it doesn't exist.
+ */
+public final class StringToolsServer implements Closeable {
+    private final ServerSocketChannel channel;
+    private final SocketAddress address;
+    private final ExecutorService connections;
+    private final BatchRunner runner = new BatchRunner();
+    private final Thread acceptor;
+
+    private StringToolsServer(ServerSocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.address = channel.getLocalAddress();
+        this.connections = connectionExecutor();
+        this.acceptor = new Thread(this::accept, "StringToolsServer acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Start a server.
+     *
+     * @throws IOException When the socket can't be bound.
+     * @throws IllegalArgumentException When the address is a TCP address that is not a loopback address.
+     * @param address The address to listen on: a loopback InetSocketAddress (with port 0 for any free port) or a
+     * UnixDomainSocketAddress.
+     * @return The running server.
+     */
+    public static StringToolsServer start(SocketAddress address) throws IOException, IllegalArgumentException {
+        ServerSocketChannel channel;
+        if (address instanceof UnixDomainSocketAddress) {
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else {
+            if (!((InetSocketAddress) address).getAddress().isLoopbackAddress())
+                throw new IllegalArgumentException("The server only listens on loopback addresses.");
+            channel = ServerSocketChannel.open();
+        }
+        channel.bind(address);
+        return new StringToolsServer(channel);
+    }
+
+    /**
+     * Parse the address of a server given on the command line.
+     *
+     * @param address A port number, for that port on the loopback interface, or the path of a Unix-domain socket.
+     * @return The address.
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.chars().allMatch(Character::isDigit) && !address.isEmpty())
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /**
+     * Get the address the server listens on, with the actual port if it was started on port 0.
+     *
+     * @return The address.
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Wait until the server is closed.
+     *
+     * @throws InterruptedException When the calling thread is interrupted while waiting.
+     */
+    public void awaitClose() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     *
+     * @throws IOException When closing the socket fails.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        connections.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress)
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel connection = channel.accept();
+                connections.execute(() -> serve(connection));
+            }
+        }
+        catch (ClosedChannelException e) {
+            // The server was closed.
+        }
+        catch (IOException e) {
+            System.err.println("Stopped accepting connections: " + e);
+        }
+    }
+
+    /**
+     * Answer the requests of a connection until the client closes it.
+     */
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            DataInputStream in = Frames.input(connection);
+            DataOutputStream out = Frames.output(connection);
+            for (String job = Frames.read(in); job != null; job = Frames.read(in)) {
+                Frames.write(out, runner.execute(job));
+                if (in.available() == 0)
+                    out.flush();
+            }
+            out.flush();
+        }
+        catch (IOException e) {
+            // The client went away or broke the protocol. Either way there is nobody to answer anymore.
+        }
+    }
+
+    /**
+     * Create the executor that connections are handled on.
+     *
+     * @return An executor that starts a virtual thread per task if the JVM supports them, and a cached pool of daemon
+     * platform threads otherwise.
+     */
+    private static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "StringToolsServer connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package main;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A substring that has been preprocessed for counting its occurrences in other strings.
+ *
+ * @implNote Matching uses the Knuth–Morris–Pratt failure function: after a mismatch, the matcher falls back to the
+ * longest prefix of the substring that is still matched instead of starting over, so every char of the input is looked
+ * at a bounded number of times. Instances are immutable and can be shared between threads, so a pattern that is counted
+ * in many inputs only has to be compiled once.
+ */
+public final class SubstringPattern {
+    /**
+     * The input length below which parallelCount counts sequentially. Can be overridden with the
+     * stringtools.parallelThreshold system property, for instance to tune it with the benchmarks.
+     */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("stringtools.parallelThreshold", 1 << 20);
+
+    // The shortest chunk that parallelCount splits an input into.
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+
+    // The largest number of occurrences crossing into a chunk that parallelCount recounts the chunk for ahead of time.
+    private static final int SPECULATED_ENTRIES = 2;
+
+    private final char[] pattern;
+
+    // failure[i] is the length of the longest proper prefix of pattern[0..i] that is also a suffix of it.
+    private final int[] failure;
+
+    private SubstringPattern(char[] pattern, int[] failure) {
+        this.pattern = pattern;
+        this.failure = failure;
+    }
+
+    /**
+     * Preprocess a substring for counting its occurrences.
+     *
+     * @implSpec Runs in O(m) where m is substring.length().
+     * @throws IllegalArgumentException When the substring is empty.
+     * @param substring The substring to preprocess.
+     * @return The compiled pattern.
+     */
+    public static SubstringPattern compile(CharSequence substring) throws IllegalArgumentException {
+        if (substring.length() == 0)
+            throw new IllegalArgumentException("The substring to count must not be empty.");
+
+        char[] pattern = substring.toString().toCharArray();
+        int[] failure = new int[pattern.length];
+
+        // Extend the matched prefix one char at a time, falling back along the failure function on a mismatch.
+        int prefixLength = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (prefixLength > 0 && pattern[i] != pattern[prefixLength])
+                prefixLength = failure[prefixLength - 1];
+            if (pattern[i] == pattern[prefixLength])
+                prefixLength++;
+            failure[i] = prefixLength;
+        }
+
+        return new SubstringPattern(pattern, failure);
+    }
+
+    /**
+     * Get the length of the substring.
+     *
+     * @return The length of the substring.
+     */
+    public int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Count the number of non-overlapping occurrences of the substring in an input.
+     *
+     * @see SubstringPattern#count(CharSequence, StringTools.OccurrenceMode)
+     * @param input The input containing occurrences of the substring.
+     * @return The number of occurrences of the substring in the input.
+     */
+    public int count(CharSequence input) {
+        return count(input, StringTools.OccurrenceMode.NON_OVERLAPPING);
+    }
+
+    /**
+     * Count the number of occurrences of the substring in an input.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), and allocates nothing.
+     * @param input The input containing occurrences of the substring.
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences of the substring in the input.
+     */
+    public int count(CharSequence input, StringTools.OccurrenceMode mode) {
+        return count(input, 0, input.length(), mode);
+    }
+
+    /**
+     * Count the number of occurrences of the substring that lie entirely within a range of an input.
+     *
+     * @implSpec Runs in O(to - from), and allocates nothing.
+     * @param input The input containing occurrences of the substring.
+     * @param from The index of the first char of the range (inclusive).
+     * @param to The index of the last char of the range (exclusive).
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences of the substring in the range.
+     */
+    public int count(CharSequence input, int from, int to, StringTools.OccurrenceMode mode) {
+        return (int) (scan(input, from, to, mode) >>> 32);
+    }
+
+    /**
+     * Count the number of occurrences of the substring in an input, splitting the work over the common fork-join pool.
+     *
+     * @implSpec Runs in O(n / p) where n is input.length() and p is the parallelism of the pool. Inputs shorter than
+     * PARALLEL_THRESHOLD are counted sequentially, since splitting them costs more than it saves.
+     * @implNote The input is split into chunks and every chunk counts the occurrences that start in it, reading up to
+     * length() - 1 chars past its end so that occurrences crossing into the next chunk are still found. For
+     * non-overlapping counting, an occurrence at the end of one chunk can rule out occurrences at the start of the next
+     * one, so the count of that chunk has to be redone from where the occurrence ended. Such a recount usually falls
+     * back in step with the original one within length() chars, after which both find the same occurrences, so only
+     * those chars are scanned again. When it doesn't (as in periodic inputs, such as "aa" in "aaaa..."), the chunk is
+     * scanned again from there; each chunk works out those recounts in parallel with the rest, for up to
+     * SPECULATED_ENTRIES of the occurrences that may cross into it. The results are always the same as those of count.
+     * @param input The input containing occurrences of the substring.
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences of the substring in the input.
+     */
+    public int parallelCount(CharSequence input, StringTools.OccurrenceMode mode) {
+        int length = input.length();
+        if (length < PARALLEL_THRESHOLD)
+            return count(input, mode);
+
+        // Aim for a few chunks per worker so that uneven chunks even out, but never for chunks that are so small that
+        // the overlap dominates.
+        int chunkCount = ForkJoinPool.getCommonPoolParallelism() * 4;
+        return parallelCount(input, mode, Math.max((length + chunkCount - 1) / chunkCount, MIN_CHUNK_LENGTH));
+    }
+
+    /**
+     * Count the number of occurrences of the substring in an input, splitting it into chunks of a given length that
+     * are counted on the common fork-join pool, whatever the length of the input.
+     *
+     * @see SubstringPattern#parallelCount(CharSequence, StringTools.OccurrenceMode)
+     * @throws IllegalArgumentException When the chunk length is not positive.
+     * @param input The input containing occurrences of the substring. A TextBuffer is flattened first.
+     * @param mode Whether occurrences may overlap each other.
+     * @param chunkLength The length of the chunks. Chunks are never shorter than the substring.
+     * @return The number of occurrences of the substring in the input.
+     */
+    public int parallelCount(CharSequence input, StringTools.OccurrenceMode mode, int chunkLength)
+            throws IllegalArgumentException {
+        if (chunkLength < 1)
+            throw new IllegalArgumentException("The chunks must not be empty.");
+        // The chunks are read from several threads at once, which a text buffer doesn't support, so read a snapshot.
+        CharSequence text = input instanceof TextBuffer ? input.toString() : input;
+        int length = text.length();
+        int chunk = Math.max(chunkLength, pattern.length);
+        int chunkCount = (int) (((long) length + chunk - 1) / chunk);
+        boolean overlapping = mode == StringTools.OccurrenceMode.OVERLAPPING;
+
+        // Count every chunk from its start and, for non-overlapping counting, from the ends of the occurrences that
+        // may cross into it, in case the previous chunk counts one of them.
+        long[] results = new long[chunkCount];
+        int[][] entries = new int[chunkCount][];
+        long[][] entryResults = new long[chunkCount][];
+        IntStream.range(0, chunkCount).parallel().forEach(c -> {
+            int from = c * chunk;
+            int to = chunkEnd(from, chunk, length);
+            results[c] = scan(text, from, to, mode);
+            if (overlapping || c == 0)
+                return;
+            entries[c] = crossingEnds(text, from);
+            if (entries[c] == null)
+                return;
+            entryResults[c] = new long[entries[c].length];
+            for (int e = 0; e < entries[c].length; e++)
+                entryResults[c][e] = resume(text, from, entries[c][e], to, results[c]);
+        });
+
+        // Combine the chunks in order. Overlapping occurrences are independent of each other, but a non-overlapping
+        // occurrence that ran into the next chunk means that chunk has to be counted from where it ended instead.
+        int occurrences = 0;
+        int lastEnd = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            int from = c * chunk;
+            long result = results[c];
+            if (!overlapping && lastEnd > from) {
+                int entry = entries[c] == null ? -1 : Arrays.binarySearch(entries[c], lastEnd);
+                result = entry >= 0
+                        ? entryResults[c][entry]
+                        : resume(text, from, lastEnd, chunkEnd(from, chunk, length), result);
+            }
+
+            occurrences += (int) (result >>> 32);
+            if ((int) result > 0)
+                lastEnd = (int) result;
+        }
+        return occurrences;
+    }
+
+    /**
+     * Find the occurrences that start before a chunk and end in it.
+     *
+     * @param from The index of the first char of the chunk.
+     * @return The indices just past those occurrences, in increasing order, or null if there are more than
+     * SPECULATED_ENTRIES of them.
+     */
+    private int[] crossingEnds(CharSequence input, int from) {
+        int[] ends = new int[SPECULATED_ENTRIES];
+        int count = 0;
+        int matched = 0;
+        int to = (int) Math.min((long) from + pattern.length - 1, input.length());
+        for (int i = Math.max(0, from - pattern.length + 1); i < to; i++) {
+            matched = advance(matched, input.charAt(i));
+            if (matched == pattern.length) {
+                if (i + 1 > from) {
+                    if (count == SPECULATED_ENTRIES)
+                        return null;
+                    ends[count++] = i + 1;
+                }
+                matched = failure[matched - 1];
+            }
+        }
+        return Arrays.copyOf(ends, count);
+    }
+
+    /**
+     * Count the non-overlapping occurrences in a range of an input, starting partway into a range that was already
+     * counted.
+     *
+     * @param from The index the range was counted from.
+     * @param entry The index to count from instead, with from < entry <= to.
+     * @param to The index just past the range.
+     * @param result The result of scan(input, from, to, NON_OVERLAPPING).
+     * @return The result of scan(input, entry, to, NON_OVERLAPPING).
+     */
+    private long resume(CharSequence input, int from, int entry, int to, long result) {
+        // Run the original count again alongside the new one. Once both have matched the same prefix after the same
+        // char, they find the same occurrences from there on, so only the occurrences before that point differ.
+        int original = 0;
+        int resumed = 0;
+        int originalCount = 0;
+        int resumedCount = 0;
+        int resumedLastEnd = 0;
+        int window = (int) Math.min((long) entry + pattern.length, to);
+        for (int i = from; i < window; i++) {
+            char character = input.charAt(i);
+            original = advance(original, character);
+            if (original == pattern.length) {
+                originalCount++;
+                original = 0;
+            }
+            if (i < entry)
+                continue;
+
+            resumed = advance(resumed, character);
+            if (resumed == pattern.length) {
+                resumedCount++;
+                resumedLastEnd = i + 1;
+                resumed = 0;
+            }
+            if (resumed == original) {
+                int occurrences = (int) (result >>> 32) - originalCount + resumedCount;
+                int lastEnd = (int) result > i + 1 ? (int) result : resumedLastEnd;
+                return ((long) occurrences << 32) | lastEnd;
+            }
+        }
+        return scan(input, entry, to, StringTools.OccurrenceMode.NON_OVERLAPPING);
+    }
+
+    /**
+     * Extend a matched prefix of the substring by a char, falling back along the failure function on a mismatch.
+     *
+     * @return The length of the prefix matched after the char.
+     */
+    private int advance(int matched, char character) {
+        while (matched > 0 && character != pattern[matched])
+            matched = failure[matched - 1];
+        return character == pattern[matched] ? matched + 1 : matched;
+    }
+
+    /**
+     * Find where the range scanned for a chunk ends.
+     *
+     * @return The end of the chunk, plus enough chars to finish any occurrence that starts in the chunk.
+     */
+    private int chunkEnd(int from, int chunkLength, int length) {
+        return (int) Math.min((long) from + chunkLength + pattern.length - 1, length);
+    }
+
+    /**
+     * Find the occurrences of the substring that lie entirely within a range of an input.
+     *
+     * @param input The input containing occurrences of the substring.
+     * @param from The index of the first char of the range (inclusive).
+     * @param to The index of the last char of the range (exclusive).
+     * @param mode Whether occurrences may overlap each other.
+     * @return The number of occurrences in the upper 32 bits, and the index just past the last occurrence (or 0 if
+     * there is none) in the lower 32 bits.
+     */
+    private long scan(CharSequence input, int from, int to, StringTools.OccurrenceMode mode) {
+        CharKernels kernels = CharKernels.best();
+        if (kernels.isVectorized())
+            return vectorizedScan(input, from, to, mode, kernels);
+
+        int occurrences = 0;
+        int lastEnd = 0;
+        boolean overlapping = mode == StringTools.OccurrenceMode.OVERLAPPING;
+
+        // The number of chars of the substring that the chars just before i currently match.
+        int matched = 0;
+        for (int i = from; i < to; i++) {
+            char character = input.charAt(i);
+            while (matched > 0 && character != pattern[matched])
+                matched = failure[matched - 1];
+            if (character == pattern[matched])
+                matched++;
+
+            if (matched == pattern.length) {
+                // We've matched up the full length of the substring. Overlapping occurrences may reuse the end of this
+                // one, so keep the longest prefix that is still matched; otherwise start again from scratch.
+                occurrences++;
+                lastEnd = i + 1;
+                matched = overlapping ? failure[matched - 1] : 0;
+            }
+        }
+        return ((long) occurrences << 32) | lastEnd;
+    }
+
+    /**
+     * Find the occurrences of the substring that lie entirely within a range of an input, using the vectorized kernels.
+     *
+     * @implNote Same as scan, except that the input is copied a window at a time, and that whenever no prefix of the
+     * substring is matched the kernel skips straight to the next occurrence of its first char, a whole vector at a
+     * time.
+     * @see SubstringPattern#scan(CharSequence, int, int, StringTools.OccurrenceMode)
+     */
+    private long vectorizedScan(
+            CharSequence input, int from, int to, StringTools.OccurrenceMode mode, CharKernels kernels
+    ) {
+        int occurrences = 0;
+        int lastEnd = 0;
+        boolean overlapping = mode == StringTools.OccurrenceMode.OVERLAPPING;
+        char first = pattern[0];
+        char[] window = CharKernels.windows();
+
+        int matched = 0;
+        for (int windowFrom = from; windowFrom < to; windowFrom += CharKernels.WINDOW) {
+            int length = Math.min(CharKernels.WINDOW, to - windowFrom);
+            CharKernels.getChars(input, windowFrom, windowFrom + length, window, 0);
+            for (int i = 0; i < length; i++) {
+                if (matched == 0) {
+                    i = kernels.indexOf(window, i, length, first);
+                    if (i == length)
+                        break;
+                }
+
+                char character = window[i];
+                while (matched > 0 && character != pattern[matched])
+                    matched = failure[matched - 1];
+                if (character == pattern[matched])
+                    matched++;
+
+                if (matched == pattern.length) {
+                    occurrences++;
+                    lastEnd = windowFrom + i + 1;
+                    matched = overlapping ? failure[matched - 1] : 0;
+                }
+            }
+        }
+        return ((long) occurrences << 32) | lastEnd;
+    }
+
+    /**
+     * Report every occurrence of the substring in an input.
+     *
+     * @implSpec Runs in O(n) where n is input.length(), and allocates nothing.
+     * @param input The input containing occurrences of the substring.
+     * @param mode Whether occurrences may overlap each other.
+     * @param onMatch Called with the index of the first char of every occurrence, in increasing order.
+     */
+    public void forEachMatch(CharSequence input, StringTools.OccurrenceMode mode, IntConsumer onMatch) {
+        boolean overlapping = mode == StringTools.OccurrenceMode.OVERLAPPING;
+        int matched = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char character = input.charAt(i);
+            while (matched > 0 && character != pattern[matched])
+                matched = failure[matched - 1];
+            if (character == pattern[matched])
+                matched++;
+
+            if (matched == pattern.length) {
+                onMatch.accept(i - pattern.length + 1);
+                matched = overlapping ? failure[matched - 1] : 0;
+            }
+        }
+    }
+
+    /**
+     * Start counting occurrences of the substring in an input that arrives in pieces.
+     *
+     * @param mode Whether occurrences may overlap each other.
+     * @return A counter that the pieces of the input can be fed to, in order.
+     */
+    public StreamCounter streamCounter(StringTools.OccurrenceMode mode) {
+        return new StreamCounter(mode);
+    }
+
+    @Override
+    public String toString() {
+        return new String(pattern);
+    }
+
+    /**
+     * Counts occurrences of a substring in an input that arrives in pieces, such as a file read one buffer at a time.
+     * Occurrences that span several pieces are counted as well. Unlike the pattern, a counter is not thread safe.
+     */
+    public final class StreamCounter {
+        private final boolean overlapping;
+        private int matched;
+        private long occurrences;
+
+        private StreamCounter(StringTools.OccurrenceMode mode) {
+            this.overlapping = mode == StringTools.OccurrenceMode.OVERLAPPING;
+        }
+
+        /**
+         * Feed the next piece of the input to the counter.
+         *
+         * @implSpec Runs in O(n) where n is piece.length(), and allocates nothing.
+         * @param piece The chars of the input that follow those fed so far.
+         */
+        public void feed(CharSequence piece) {
+            // Same as SubstringPattern.scan, except that the matched prefix carries over from the previous piece.
+            int matched = this.matched;
+            for (int i = 0; i < piece.length(); i++) {
+                char character = piece.charAt(i);
+                while (matched > 0 && character != pattern[matched])
+                    matched = failure[matched - 1];
+                if (character == pattern[matched])
+                    matched++;
+
+                if (matched == pattern.length) {
+                    occurrences++;
+                    matched = overlapping ? failure[matched - 1] : 0;
+                }
+            }
+            this.matched = matched;
+        }
+
+        /**
+         * Get the number of occurrences found in the input fed so far.
+         *
+         * @return The number of occurrences.
+         */
+        public long count() {
+            return occurrences;
+        }
+    }
+}
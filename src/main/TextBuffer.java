@@ -0,0 +1,325 @@
+package main;
+
+/**
+ * A mutable text that substrings can be inserted into anywhere, cheaply, such as a document being edited.
+ *
+ * @implNote The text is a piece table: the original text is never copied, inserted text is appended to a separate
+ * buffer, and the text is the sequence of pieces of those two buffers. The pieces are kept in a treap (a binary search
+ * tree balanced by random priorities) ordered by their position in the text, where every node knows how many chars its
+ * subtree holds. Finding, splitting and inserting pieces therefore takes O(log k) for a text of k pieces, regardless of
+ * how long the pieces are. The text is only flattened into a String when toString is called, and the String is kept
+ * until the next edit. Reading the text with charAt remembers the last two pieces it read from, so reading it in
+ * order, or from both ends at once, takes amortized O(1) per char.
+ * <p>
+ * A buffer is not thread safe, not even for reading, since charAt updates the pieces it remembers. Code that reads a
+ * buffer from several threads at once, such as SubstringPattern.parallelCount, reads its toString() instead.
+ */
+public final class TextBuffer implements CharSequence {
+    private final StringBuilder added = new StringBuilder();
+    private Node root;
+
+    // State of the xorshift generator that draws the priorities of new nodes. Seeded so that runs are reproducible.
+    private int seed = 0x2545F491;
+
+    // The pieces charAt last read from.
+    private Finger lastFinger;
+    private Finger previousFinger;
+
+    // The flattened text, or null if it has been edited since toString was last called.
+    private String flattened;
+
+    /**
+     * Create an empty buffer.
+     */
+    public TextBuffer() {
+        this("");
+    }
+
+    /**
+     * Create a buffer holding a text.
+     *
+     * @implSpec Runs in O(n) where n is text.length(), since the text has to be copied into a String if it isn't one.
+     * @param text The initial text of the buffer.
+     */
+    public TextBuffer(CharSequence text) {
+        String original = text.toString();
+        root = original.isEmpty() ? null : new Node(original, 0, original.length(), nextPriority());
+        flattened = original;
+    }
+
+    /**
+     * Insert a substring after a given index, like StringTools.addSubstring does.
+     *
+     * @implSpec Runs in O(s + log k) where s is substring.length() and k is the number of edits made so far.
+     * @throws IndexOutOfBoundsException When the index to add the string at exceeds the length of the text, or is
+     * negative.
+     * @param substring The string to insert after the provided index.
+     * @param index The index of the char to insert the substring after. Inserting at the length of the text appends the
+     * substring, just like inserting after the last char does.
+     * @return This buffer.
+     */
+    public TextBuffer addSubstring(CharSequence substring, int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index > length())
+            throw new IndexOutOfBoundsException();
+        return insert(Math.min(index + 1, length()), substring);
+    }
+
+    /**
+     * Insert a substring at a given offset, so that its first char ends up at that offset.
+     *
+     * @implSpec Runs in O(s + log k) where s is substring.length() and k is the number of edits made so far.
+     * @throws IndexOutOfBoundsException When the offset exceeds the length of the text, or is negative.
+     * @param offset The offset to insert the substring at, from 0 (before the first char) to length() (after the last).
+     * @param substring The string to insert.
+     * @return This buffer.
+     */
+    public TextBuffer insert(int offset, CharSequence substring) throws IndexOutOfBoundsException {
+        if (offset < 0 || offset > length())
+            throw new IndexOutOfBoundsException();
+        if (substring.length() == 0)
+            return this;
+
+        int start = added.length();
+        added.append(substring);
+        Node piece = new Node(added, start, substring.length(), nextPriority());
+
+        Node[] halves = split(root, offset);
+        root = merge(merge(halves[0], piece), halves[1]);
+        edited();
+        return this;
+    }
+
+    /**
+     * Delete a range of chars from the text.
+     *
+     * @implSpec Runs in O(log k) where k is the number of edits made so far.
+     * @throws IndexOutOfBoundsException When the range does not lie within the text, or ends before it starts.
+     * @param from The index of the first char to delete (inclusive).
+     * @param to The index of the last char to delete (exclusive).
+     * @return This buffer.
+     */
+    public TextBuffer delete(int from, int to) throws IndexOutOfBoundsException {
+        if (from < 0 || to > length() || from > to)
+            throw new IndexOutOfBoundsException();
+        if (from == to)
+            return this;
+
+        // The characters of the deleted pieces stay in their buffers, but nothing refers to them anymore.
+        Node[] tail = split(root, to);
+        Node[] head = split(tail[0], from);
+        root = merge(head[0], tail[1]);
+        edited();
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length())
+            throw new IndexOutOfBoundsException(index);
+
+        Finger finger = lastFinger;
+        if (finger == null || !finger.contains(index)) {
+            finger = previousFinger;
+            if (finger == null || !finger.contains(index))
+                finger = find(index);
+            previousFinger = lastFinger;
+            lastFinger = finger;
+        }
+        Node node = finger.node;
+        return node.source.charAt(node.start + index - finger.offset);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end)
+            throw new IndexOutOfBoundsException();
+        if (flattened != null)
+            return flattened.substring(start, end);
+
+        // Copy just the range rather than flattening the whole text.
+        StringBuilder range = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+            range.append(charAt(i));
+        return range.toString();
+    }
+
+    /**
+     * Flatten the text into a String.
+     *
+     * @implSpec Runs in O(n) where n is length() the first time it is called after an edit, and in O(1) after that.
+     * @return The text.
+     */
+    @Override
+    public String toString() {
+        if (flattened == null) {
+            StringBuilder text = new StringBuilder(length());
+            appendTo(root, text);
+            flattened = text.toString();
+        }
+        return flattened;
+    }
+
+    /**
+     * Forget everything that depends on the current layout of the pieces.
+     */
+    private void edited() {
+        lastFinger = null;
+        previousFinger = null;
+        flattened = null;
+    }
+
+    /**
+     * Find the piece holding a char of the text.
+     *
+     * @param index The index of the char, which must lie within the text.
+     * @return The piece and the offset of its first char in the text.
+     */
+    private Finger find(int index) {
+        Node node = root;
+        int offset = 0;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < offset + leftSize) {
+                node = node.left;
+            }
+            else if (index < offset + leftSize + node.length) {
+                return new Finger(node, offset + leftSize);
+            }
+            else {
+                offset += leftSize + node.length;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Split a tree into the pieces before and after an offset, splitting the piece the offset falls in if needed.
+     *
+     * @param node The root of the tree, which is taken apart.
+     * @param offset The offset, relative to the start of the tree.
+     * @return The roots of the trees holding the chars before the offset and those from the offset on.
+     */
+    private Node[] split(Node node, int offset) {
+        if (node == null)
+            return new Node[2];
+
+        int leftSize = size(node.left);
+        if (offset <= leftSize) {
+            Node[] halves = split(node.left, offset);
+            node.left = halves[1];
+            node.update();
+            halves[1] = node;
+            return halves;
+        }
+        if (offset >= leftSize + node.length) {
+            Node[] halves = split(node.right, offset - leftSize - node.length);
+            node.right = halves[0];
+            node.update();
+            halves[0] = node;
+            return halves;
+        }
+
+        // The offset falls inside this node's piece: the start of the piece stays here, and the rest becomes a node of
+        // its own at the start of the right half. It takes over this node's priority, which is at least that of the
+        // right subtree it becomes the root of.
+        int headLength = offset - leftSize;
+        Node rest = new Node(node.source, node.start + headLength, node.length - headLength, node.priority);
+        rest.right = node.right;
+        rest.update();
+        node.length = headLength;
+        node.right = null;
+        node.update();
+        return new Node[] {node, rest};
+    }
+
+    /**
+     * Join two trees, all of whose pieces come before all of those of the other.
+     *
+     * @return The root of the joined tree.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static void appendTo(Node node, StringBuilder text) {
+        while (node != null) {
+            appendTo(node.left, text);
+            text.append(node.source, node.start, node.start + node.length);
+            node = node.right;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /**
+     * A piece of the text, and the root of the subtree of the pieces around it.
+     */
+    private static final class Node {
+        private final CharSequence source;
+        private final int start;
+        private int length;
+        private final int priority;
+        private Node left;
+        private Node right;
+
+        // The number of chars in the subtree.
+        private int size;
+
+        private Node(CharSequence source, int start, int length, int priority) {
+            this.source = source;
+            this.start = start;
+            this.length = length;
+            this.priority = priority;
+            this.size = length;
+        }
+
+        private void update() {
+            size = size(left) + length + size(right);
+        }
+    }
+
+    /**
+     * A piece of the text, and the offset of its first char in the text.
+     */
+    private static final class Finger {
+        private final Node node;
+        private final int offset;
+        private final int end;
+
+        private Finger(Node node, int offset) {
+            this.node = node;
+            this.offset = offset;
+            this.end = offset + node.length;
+        }
+
+        private boolean contains(int index) {
+            return index >= offset && index < end;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package main;
+
+/**
+ * The rules StringTools uses to tell the characters of a text apart.
+ *
+ * <ul>
+ *     <li>Separators split a sentence into words, and are skipped when checking for palindromes.</li>
+ *     <li>Punctuation marks are dropped from the words of a reversed sentence, except for one ending the sentence.</li>
+ *     <li>Ignorable characters are skipped by every operation: palindromes, anagrams and sentence reversal.</li>
+ * </ul>
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TextRules {
+    /**
+     * The rules used by the StringTools methods that don't take any: ".", "?" and "!" are punctuation marks, spaces
+     * are separators, and nothing is ignorable.
+     */
+    public static final TextRules DEFAULT = new TextRules(CharClass.of(".?!"), CharClass.of(" "), CharClass.NONE);
+
+    private final CharClass punctuation;
+    private final CharClass separators;
+    private final CharClass ignorable;
+    private final CharClass palindromeSkipped;
+
+    /**
+     * Create a set of rules.
+     *
+     * @param punctuation The punctuation marks.
+     * @param separators The separators between words.
+     * @param ignorable The characters to ignore entirely.
+     */
+    public TextRules(CharClass punctuation, CharClass separators, CharClass ignorable) {
+        this.punctuation = punctuation;
+        this.separators = separators;
+        this.ignorable = ignorable;
+        this.palindromeSkipped = separators.union(ignorable);
+    }
+
+    /**
+     * Get the punctuation marks.
+     *
+     * @return The punctuation marks.
+     */
+    public CharClass punctuation() {
+        return punctuation;
+    }
+
+    /**
+     * Get the separators between words.
+     *
+     * @return The separators between words.
+     */
+    public CharClass separators() {
+        return separators;
+    }
+
+    /**
+     * Get the characters to ignore entirely.
+     *
+     * @return The characters to ignore entirely.
+     */
+    public CharClass ignorable() {
+        return ignorable;
+    }
+
+    /**
+     * Get the characters that palindrome checks skip over.
+     *
+     * @return The separators and the ignorable characters.
+     */
+    public CharClass palindromeSkipped() {
+        return palindromeSkipped;
+    }
+
+    /**
+     * Create a copy of these rules with different punctuation marks.
+     *
+     * @param punctuation The new punctuation marks.
+     * @return The new rules.
+     */
+    public TextRules withPunctuation(CharClass punctuation) {
+        return new TextRules(punctuation, separators, ignorable);
+    }
+
+    /**
+     * Create a copy of these rules with different separators between words.
+     *
+     * @param separators The new separators between words.
+     * @return The new rules.
+     */
+    public TextRules withSeparators(CharClass separators) {
+        return new TextRules(punctuation, separators, ignorable);
+    }
+
+    /**
+     * Create a copy of these rules with different characters to ignore entirely.
+     *
+     * @param ignorable The new characters to ignore entirely.
+     * @return The new rules.
+     */
+    public TextRules withIgnorable(CharClass ignorable) {
+        return new TextRules(punctuation, separators, ignorable);
+    }
+}
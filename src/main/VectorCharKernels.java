@@ -0,0 +1,108 @@
+package main;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels, a whole SIMD register of chars at a time, using the Vector API.
+ *
+ * @implNote Chars are loaded into ShortVectors of the platform's preferred width (16 chars for AVX2, 32 for AVX-512).
+ * The few chars at the end of a range that don't fill a whole vector are handled by the scalar kernels. This class
+ * links against jdk.incubator.vector, so it must only be loaded when that module is present; CharKernels loads it
+ * reflectively.
+ */
+final class VectorCharKernels extends CharKernels {
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    // Reverses the order of the lanes of a vector of chars.
+    private static final VectorShuffle<Short> REVERSE = VectorShuffle.iota(CHARS, CHARS.length() - 1, -1, true);
+
+    private static final CharKernels SCALAR = CharKernels.scalar();
+
+    VectorCharKernels() {}
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    public int mirroredPrefix(char[] chars, int leftFrom, int rightTo, int length, char[] stops) {
+        int lanes = CHARS.length();
+        int i = 0;
+        for (; i + lanes <= length; i += lanes) {
+            // Load the right-hand chars and reverse them, so that every lane holds a pair of mirrored chars.
+            ShortVector left = ShortVector.fromCharArray(CHARS, chars, leftFrom + i);
+            ShortVector right = ShortVector.fromCharArray(CHARS, chars, rightTo - i - lanes).rearrange(REVERSE);
+
+            VectorMask<Short> mismatch = foldAscii(left).compare(VectorOperators.NE, foldAscii(right))
+                    .or(left.compare(VectorOperators.UNSIGNED_GE, (short) 128))
+                    .or(right.compare(VectorOperators.UNSIGNED_GE, (short) 128));
+            int first = mismatch.anyTrue() ? mismatch.firstTrue() : lanes;
+
+            // Only keep the position of the first stop rather than combining the masks, since a mask carried from one
+            // iteration of a loop to the next can't be kept in a register and gets boxed.
+            for (char stop : stops) {
+                VectorMask<Short> stopped = left.compare(VectorOperators.EQ, (short) stop)
+                        .or(right.compare(VectorOperators.EQ, (short) stop));
+                if (stopped.anyTrue())
+                    first = Math.min(first, stopped.firstTrue());
+            }
+            if (first < lanes)
+                return i + first;
+        }
+        return i + SCALAR.mirroredPrefix(chars, leftFrom + i, rightTo - i, length - i, stops);
+    }
+
+    @Override
+    public int indexOf(char[] chars, int from, int to, char target) {
+        int lanes = CHARS.length();
+        int i = from;
+        for (; i + lanes <= to; i += lanes) {
+            VectorMask<Short> found = ShortVector.fromCharArray(CHARS, chars, i)
+                    .compare(VectorOperators.EQ, (short) target);
+            if (found.anyTrue())
+                return i + found.firstTrue();
+        }
+        return SCALAR.indexOf(chars, i, to, target);
+    }
+
+    @Override
+    public boolean isLatin1(char[] chars, int from, int to) {
+        int lanes = CHARS.length();
+        int i = from;
+        for (; i + lanes <= to; i += lanes)
+            if (ShortVector.fromCharArray(CHARS, chars, i).compare(VectorOperators.UNSIGNED_GE, (short) 256).anyTrue())
+                return false;
+        return SCALAR.isLatin1(chars, i, to);
+    }
+
+    @Override
+    public boolean isZero(int[] counts) {
+        int lanes = INTS.length();
+        int i = 0;
+        IntVector any = IntVector.zero(INTS);
+        for (; i + lanes <= counts.length; i += lanes)
+            any = any.or(IntVector.fromArray(INTS, counts, i));
+        if (any.compare(VectorOperators.NE, 0).anyTrue())
+            return false;
+        for (; i < counts.length; i++)
+            if (counts[i] != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Fold the case of the ASCII uppercase letters of a vector of chars.
+     */
+    private static ShortVector foldAscii(ShortVector chars) {
+        VectorMask<Short> uppercase = chars.compare(VectorOperators.GE, (short) 'A')
+                .and(chars.compare(VectorOperators.LE, (short) 'Z'));
+        return chars.add((short) ('a' - 'A'), uppercase);
+    }
+}
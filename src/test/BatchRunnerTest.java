@@ -0,0 +1,83 @@
+package test;
+
+import main.BatchRunner;
+import main.StringTools;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+    private final BatchRunner runner = new BatchRunner();
+
+    /**
+     * Overloads that take the same number of arguments, declared in the opposite order of preference.
+     */
+    public static final class Overloads {
+        public static String describe(StringTools.OccurrenceMode first, int second) { return "enum, int"; }
+        public static String describe(int first, StringTools.OccurrenceMode second) { return "int, enum"; }
+        public static String describe(int first, int second) { return "int, int"; }
+        public static String describe(CharSequence first, String second) { return "CharSequence, String"; }
+        public static String describe(String first, CharSequence second) { return "String, CharSequence"; }
+        public static String describe(Thread.State first) { return "Thread.State"; }
+        public static String describe(StringTools.OccurrenceMode first) { return "OccurrenceMode"; }
+    }
+
+    @Test
+    public void testExecute() {
+        assertEquals("OK\ttrue", runner.execute("palindromeRecursive\tTaco cat"));
+        assertEquals("OK\t2", runner.execute("occurrenceCounter\tbanana\tan"));
+        assertEquals("OK\t2", runner.execute("occurrenceCounter\taaa\taa\tOVERLAPPING"));
+        assertEquals("OK\thello world", runner.execute("addSubstring\thello\t world\t4"));
+        assertEquals("OK\ttest a is This.", runner.execute("sentenceReversal\tThis is a test."));
+
+        // Escaped arguments and results.
+        assertEquals("OK\tb\\ta", runner.execute("addSubstring\tb\t\\ta\t1"));
+        assertEquals("OK\t\\\\\\n", runner.execute("addSubstring\t\\\\\t\\n\t0"));
+
+        // Errors are reported with the type of the exception, and don't stop anything.
+        assertEquals("ERR\tInvalidSentenceException", runner.execute("sentenceReversal\ttrailing "));
+        assertEquals("ERR\tIndexOutOfBoundsException", runner.execute("addSubstring\tt\tt\t8"));
+        assertTrue(runner.execute("addSubstring\tt\tt\teight").startsWith("ERR\tNumberFormatException\t"));
+        assertTrue(runner.execute("occurrenceCounter\ta\ta\tSOMETIMES").startsWith("ERR\tIllegalArgumentException\t"));
+        assertTrue(runner.execute("noSuchOperation\ta").startsWith("ERR\tUnknownOperation\t"));
+        assertTrue(runner.execute("getLength\ta\tb").startsWith("ERR\tWrongArgumentCount\t"));
+        assertTrue(runner.execute("").startsWith("ERR\tUnknownOperation\t"));
+    }
+
+    @Test
+    public void testOverloads() {
+        BatchRunner overloads = new BatchRunner(Overloads.class, ForkJoinPool.commonPool(), 1);
+        assertEquals("OK\tString, CharSequence", overloads.execute("describe\t1\t2"));
+        // Enums are ranked by their fully qualified name, so java.lang.Thread.State comes before main.StringTools's.
+        assertEquals("OK\tThread.State", overloads.execute("describe\tNEW"));
+        assertTrue(overloads.execute("describe\tOVERLAPPING").startsWith("ERR\tIllegalArgumentException\t"));
+    }
+
+    @Test
+    public void testRun() throws IOException, StringTools.InvalidSentenceException {
+        // More jobs than fit in the batches in flight at once, with results that are easy to tell apart.
+        StringBuilder jobs = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50 * BatchRunner.BATCH_SIZE + 7; i++) {
+            String sentence = "job " + i + (i % 3 == 0 ? " !" : "");
+            jobs.append("sentenceReversal\t").append(sentence).append('\n');
+            if (i % 3 == 0)
+                expected.append("ERR\tInvalidSentenceException\n");
+            else
+                expected.append("OK\t").append(StringTools.sentenceReversal(sentence)).append('\n');
+        }
+
+        StringWriter results = new StringWriter();
+        runner.run(new StringReader(jobs.toString()), results);
+        assertEquals(expected.toString(), results.toString());
+
+        StringWriter empty = new StringWriter();
+        runner.run(new StringReader(""), empty);
+        assertEquals("", empty.toString());
+    }
+}
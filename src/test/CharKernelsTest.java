@@ -0,0 +1,141 @@
+package test;
+
+import main.CharKernels;
+import main.StringTools;
+import main.TextBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CharKernelsTest {
+    // Chars from every class the kernels tell apart: lowercase and uppercase ASCII, spaces, Latin-1 and beyond.
+    private static final String ALPHABET = "aAbB Zz.éÉ日😀";
+
+    // Longer than two of the windows the vectorized code paths copy chars into.
+    private static final int LONG_LENGTH = 20_000;
+
+    private static char[] randomChars(Random random, int length, String alphabet) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        return chars;
+    }
+
+    @Test
+    public void testVectorizedKernels() {
+        assumeTrue(CharKernels.vectorized().isPresent(), "Run with --add-modules jdk.incubator.vector");
+        CharKernels scalar = CharKernels.scalar();
+        CharKernels vector = CharKernels.vectorized().get();
+        assertFalse(scalar.isVectorized());
+        assertTrue(vector.isVectorized());
+
+        Random random = new Random(233);
+        for (int test = 0; test < 2_000; test++) {
+            // Mostly matching chars, so that the mismatches land anywhere in the vectors and in the scalar tails.
+            int length = random.nextInt(300);
+            char[] chars = randomChars(random, 2 * length + 1, test % 2 == 0 ? "aA" : ALPHABET);
+            for (int i = 0; i < length; i++)
+                if (random.nextInt(length + 1) != 0)
+                    chars[chars.length - 1 - i] = chars[i];
+            char[] stops = test % 3 == 0 ? new char[0] : new char[] {' ', '.'};
+            int from = random.nextInt(length + 1);
+            int rangeLength = length - from;
+            assertEquals(
+                    scalar.mirroredPrefix(chars, from, chars.length - from, rangeLength, stops),
+                    vector.mirroredPrefix(chars, from, chars.length - from, rangeLength, stops)
+            );
+
+            int to = from + random.nextInt(chars.length - from + 1);
+            for (char target : ALPHABET.toCharArray())
+                assertEquals(scalar.indexOf(chars, from, to, target), vector.indexOf(chars, from, to, target));
+            assertEquals(scalar.isLatin1(chars, from, to), vector.isLatin1(chars, from, to));
+
+            int[] counts = new int[random.nextInt(300)];
+            if (counts.length > 0 && test % 2 == 0)
+                counts[random.nextInt(counts.length)] = random.nextInt(3) - 1;
+            assertEquals(scalar.isZero(counts), vector.isZero(counts));
+        }
+    }
+
+    @Test
+    public void testPalindromes() {
+        // Long enough for the vectorized path, with whatever kernels this JVM picked. The results must match those of
+        // the recursive checker, which never uses the kernels.
+        Random random = new Random(233);
+        for (String alphabet : new String[] {"abc", "aAbB", ALPHABET}) {
+            for (int test = 0; test < 20; test++) {
+                char[] half = randomChars(random, LONG_LENGTH, alphabet);
+                StringBuilder palindrome = new StringBuilder().append(half);
+                for (int i = half.length - 1; i >= 0; i--)
+                    palindrome.append(Character.toLowerCase(half[i]));
+                if (test % 2 == 1)
+                    palindrome.setCharAt(random.nextInt(palindrome.length()), 'x');
+
+                String input = palindrome.toString();
+                boolean expected = StringTools.palindromeRecursive(input);
+                assertEquals(expected, StringTools.isPalindrome(input));
+                assertEquals(expected, StringTools.isPalindrome(palindrome));
+                assertEquals(expected, StringTools.isPalindrome(CharBuffer.wrap(" " + input).position(1)));
+                assertEquals(expected, StringTools.isPalindrome(new TextBuffer(input)));
+            }
+        }
+    }
+
+    @Test
+    public void testAnagrams() {
+        Random random = new Random(233);
+        for (String alphabet : new String[] {"abc", "aé ", ALPHABET}) {
+            for (int test = 0; test < 20; test++) {
+                char[] chars = randomChars(random, LONG_LENGTH, alphabet);
+                String str1 = new String(chars);
+                for (int i = chars.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    char swap = chars[i];
+                    chars[i] = chars[j];
+                    chars[j] = swap;
+                }
+                if (test % 2 == 1)
+                    chars[random.nextInt(chars.length)] = '日';
+                String str2 = new String(chars);
+
+                char[] sorted1 = str1.toCharArray();
+                char[] sorted2 = str2.toCharArray();
+                Arrays.sort(sorted1);
+                Arrays.sort(sorted2);
+                assertEquals(Arrays.equals(sorted1, sorted2), StringTools.anagramChecker(str1, str2));
+            }
+        }
+    }
+
+    @Test
+    public void testOccurrenceCounter() {
+        Random random = new Random(233);
+        for (String alphabet : new String[] {"ab", "abc 日", ALPHABET}) {
+            String input = new String(randomChars(random, LONG_LENGTH, alphabet));
+            for (int test = 0; test < 20; test++) {
+                int start = random.nextInt(input.length() - 4);
+                String substring = input.substring(start, start + 1 + random.nextInt(4));
+
+                int overlapping = 0;
+                int nonOverlapping = 0;
+                int lastEnd = 0;
+                for (int i = input.indexOf(substring); i >= 0; i = input.indexOf(substring, i + 1)) {
+                    overlapping++;
+                    if (i >= lastEnd) {
+                        nonOverlapping++;
+                        lastEnd = i + substring.length();
+                    }
+                }
+                assertEquals(overlapping, StringTools.occurrenceCounter(
+                        input, substring, StringTools.OccurrenceMode.OVERLAPPING
+                ));
+                assertEquals(nonOverlapping, StringTools.occurrenceCounter(new StringBuilder(input), substring));
+            }
+        }
+    }
+}
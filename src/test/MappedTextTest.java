@@ -0,0 +1,130 @@
+package test;
+
+import main.MappedText;
+import main.StringTools;
+import main.SubstringPattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTextTest {
+    // Longer than the windows the file is decoded in, with multi-byte chars straddling the window boundaries.
+    private static final String UNICODE_TEXT = "ha ha é日本😀 ".repeat(20_000);
+
+    @TempDir
+    Path directory;
+
+    private MappedText write(String text, Charset charset) throws IOException {
+        Path file = Files.createTempFile(directory, "text", ".txt");
+        Files.writeString(file, text, charset);
+        return MappedText.open(file, charset);
+    }
+
+    @Test
+    public void testOccurrenceCounter() throws IOException {
+        for (Charset charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE)) {
+            try (MappedText text = write(UNICODE_TEXT, charset)) {
+                assertEquals(UNICODE_TEXT.length(), text.length());
+                for (String substring : List.of("ha", "日本😀", "😀 ha", " ")) {
+                    for (StringTools.OccurrenceMode mode : StringTools.OccurrenceMode.values()) {
+                        assertEquals(
+                                StringTools.occurrenceCounter(UNICODE_TEXT, substring, mode),
+                                text.occurrenceCounter(SubstringPattern.compile(substring), mode)
+                        );
+                    }
+                }
+            }
+        }
+
+        String latin1Text = "ça va, ça va ".repeat(10_000);
+        try (MappedText text = write(latin1Text, StandardCharsets.ISO_8859_1)) {
+            assertEquals(latin1Text.length(), text.length());
+            assertEquals(StringTools.occurrenceCounter(latin1Text, "ça"), text.occurrenceCounter("ça"));
+        }
+    }
+
+    @Test
+    public void testPalindrome() throws IOException {
+        String half = "Nurses run é日本".repeat(10_000);
+        String palindrome = half + " " + new StringBuilder(half).reverse();
+
+        try (MappedText text = write(palindrome, StandardCharsets.UTF_8)) {
+            assertTrue(text.isPalindrome());
+        }
+        try (MappedText text = write(palindrome + "x", StandardCharsets.UTF_8)) {
+            assertFalse(text.isPalindrome());
+        }
+        try (MappedText text = write(palindrome, StandardCharsets.UTF_16LE)) {
+            assertThrows(UnsupportedOperationException.class, text::isPalindrome);
+        }
+
+        // Palindromes are checked char by char, so a reversed supplementary char doesn't mirror itself.
+        String supplementary = "a😀b".repeat(30_000);
+        supplementary = supplementary + new StringBuilder(supplementary).reverse();
+        try (MappedText text = write(supplementary, StandardCharsets.UTF_8)) {
+            assertEquals(StringTools.isPalindrome(supplementary), text.isPalindrome());
+        }
+
+        String latin1Palindrome = "Ésope reste ici et se reposé ".repeat(10_000).trim();
+        latin1Palindrome = latin1Palindrome + " " + new StringBuilder(latin1Palindrome).reverse();
+        try (MappedText text = write(latin1Palindrome, StandardCharsets.ISO_8859_1)) {
+            assertTrue(text.isPalindrome());
+        }
+        try (MappedText text = write("", StandardCharsets.UTF_8)) {
+            assertTrue(text.isPalindrome());
+        }
+    }
+
+    @Test
+    public void testAnagrams() throws IOException {
+        String shuffled = new StringBuilder(UNICODE_TEXT).reverse().toString();
+        try (MappedText text = write(UNICODE_TEXT, StandardCharsets.UTF_8);
+             MappedText anagram = write(shuffled, StandardCharsets.UTF_8);
+             MappedText other = write(UNICODE_TEXT.replaceFirst("h", "x"), StandardCharsets.UTF_8)) {
+            assertTrue(text.isAnagramOf(anagram));
+            assertFalse(text.isAnagramOf(other));
+
+            List<Long> expected = new ArrayList<>();
+            StringTools.anagramOccurrences(UNICODE_TEXT, "ah ", offset -> expected.add((long) offset));
+            List<Long> actual = new ArrayList<>();
+            text.anagramOccurrences("ah ", actual::add);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testMalformedInput() throws IOException {
+        Path file = Files.createTempFile(directory, "malformed", ".txt");
+        Files.write(file, new byte[] {'a', (byte) 0xC3});
+        try (MappedText text = MappedText.open(file)) {
+            assertThrows(CharacterCodingException.class, () -> text.occurrenceCounter("a"));
+        }
+
+        // Single-byte charsets report bytes that don't decode the same way, rather than replacing them. In
+        // windows-1252, 0x80 is the euro sign but 0x81 is not a char at all.
+        Charset windows1252 = Charset.forName("windows-1252");
+        Files.write(file, new byte[] {'a', (byte) 0x80, 'a'});
+        try (MappedText text = MappedText.open(file, windows1252)) {
+            assertEquals(3, text.length());
+            assertEquals(2, text.occurrenceCounter("a"));
+            assertTrue(text.isPalindrome());
+        }
+        Files.write(file, new byte[] {'a', (byte) 0x81, 'a'});
+        try (MappedText text = MappedText.open(file, windows1252)) {
+            assertThrows(CharacterCodingException.class, text::length);
+            assertThrows(CharacterCodingException.class, () -> text.occurrenceCounter("a"));
+            assertThrows(CharacterCodingException.class, text::isPalindrome);
+            assertThrows(CharacterCodingException.class, () -> text.anagramOccurrences("aa", offset -> {}));
+        }
+    }
+}
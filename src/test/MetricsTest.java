@@ -0,0 +1,101 @@
+package test;
+
+import main.BatchRunner;
+import main.Histogram;
+import main.Metrics;
+import main.OperationMetrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MetricsTest {
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+
+        // Values of every magnitude, which must come back within the precision of the buckets.
+        Random random = new Random(233);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >>> (1 + random.nextInt(63));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.max());
+        for (double percentile : new double[] {0, 1, 50, 90, 99, 99.9, 100}) {
+            long expected = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected && actual - expected <= expected / 32, percentile + ": " + actual);
+        }
+
+        // Small values are exact, and recording from many threads at once loses nothing.
+        histogram.reset();
+        IntStream.range(0, 400_000).parallel().forEach(i -> histogram.record(i % 4));
+        assertEquals(400_000, histogram.count());
+        assertEquals(1, histogram.percentile(50));
+        assertEquals(3, histogram.percentile(100));
+        assertEquals(1.5, histogram.mean());
+    }
+
+    @Test
+    public void testOperationMetrics() throws JMException {
+        assumeTrue(Metrics.ENABLED, "Metrics are disabled");
+        BatchRunner runner = new BatchRunner();
+        OperationMetrics reversals = Metrics.operation("sentenceReversal");
+        OperationMetrics insertions = Metrics.operation("addSubstring");
+        long calls = reversals.getCalls();
+        Map<String, Long> reversalExceptions = reversals.getExceptions();
+        Map<String, Long> insertionExceptions = insertions.getExceptions();
+
+        runner.execute("sentenceReversal\tThis is a test.");
+        runner.execute("sentenceReversal\ttrailing ");
+        runner.execute("sentenceReversal\ttrailing ");
+        runner.execute("addSubstring\tt\tt\t8");
+        // Jobs that never reach the operation are not calls of it.
+        runner.execute("addSubstring\tt\tt\teight");
+
+        assertEquals(calls + 3, reversals.getCalls());
+        assertEquals(
+                reversalExceptions.getOrDefault("InvalidSentenceException", 0L) + 2,
+                reversals.getExceptions().get("InvalidSentenceException")
+        );
+        assertEquals(
+                insertionExceptions.getOrDefault("IndexOutOfBoundsException", 0L) + 1,
+                insertions.getExceptions().get("IndexOutOfBoundsException")
+        );
+        assertFalse(insertions.getExceptions().containsKey("NumberFormatException"));
+        assertTrue(reversals.getInputSizeMax() >= "This is a test.".length());
+        assertTrue(reversals.getLatencyMax() > 0);
+
+        // The same metrics over JMX, and in the dump.
+        ObjectName name = new ObjectName("stringtools:type=Operation,name=\"sentenceReversal\"");
+        assertEquals(
+                reversals.getCalls(),
+                ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Calls")
+        );
+        assertTrue(Metrics.dump().lines().anyMatch(line -> line.startsWith("sentenceReversal ")));
+
+        // Looking metrics up doesn't create them.
+        assertSame(reversals, Metrics.lookup("sentenceReversal").orElseThrow());
+        assertTrue(Metrics.lookup("noSuchOperation").isEmpty());
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("stringtools:type=Operation,name=\"noSuchOperation\"")
+        ));
+
+        reversals.reset();
+        assertEquals(0, reversals.getCalls());
+        assertTrue(reversals.getExceptions().isEmpty());
+    }
+}
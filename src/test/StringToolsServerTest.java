@@ -0,0 +1,124 @@
+package test;
+
+import main.LoadGenerator;
+import main.StringToolsServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringToolsServerTest {
+    private static void writeFrame(DataOutputStream out, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readFrame(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Send every request before reading any response, and check that the responses come back in order.
+     */
+    private static void assertPipelined(SocketAddress address) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            for (int i = 0; i < 1_000; i++)
+                writeFrame(out, "addSubstring\t" + i + "\t日\t0");
+            writeFrame(out, "sentenceReversal\ttrailing ");
+            out.flush();
+            for (int i = 0; i < 1_000; i++) {
+                String number = String.valueOf(i);
+                assertEquals("OK\t" + number.charAt(0) + "日" + number.substring(1), readFrame(in));
+            }
+            assertEquals("ERR\tInvalidSentenceException", readFrame(in));
+        }
+    }
+
+    @Test
+    public void testLoopback() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> StringToolsServer.start(new InetSocketAddress(0)));
+
+        try (StringToolsServer server = StringToolsServer.start(StringToolsServer.parseAddress("0"))) {
+            InetSocketAddress address = (InetSocketAddress) server.address();
+            assertEquals(InetAddress.getLoopbackAddress(), address.getAddress());
+            assertNotEquals(0, address.getPort());
+            assertPipelined(address);
+
+            // Several connections at once, with more requests in flight than fit in a buffer.
+            LoadGenerator.Report report = LoadGenerator.run(address, LoadGenerator.DEFAULT_JOBS, 4, 5_000, 64);
+            assertEquals(20_000, report.requests());
+            assertEquals(0, report.errors());
+            assertTrue(report.latency(50) <= report.latency(99));
+            assertTrue(report.latency(99) <= report.latency(100));
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("server.sock");
+        SocketAddress address = StringToolsServer.parseAddress(path.toString());
+        assertEquals(UnixDomainSocketAddress.of(path), address);
+
+        try (StringToolsServer server = StringToolsServer.start(address)) {
+            assertPipelined(server.address());
+
+            LoadGenerator.Report report = LoadGenerator.run(
+                    server.address(), List.of("getLength\tabc", "noSuchOperation"), 2, 1_000, 8
+            );
+            assertEquals(2_000, report.requests());
+            assertEquals(1_000, report.errors());
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testLoadFailure() throws IOException {
+        try (StringToolsServer server = StringToolsServer.start(StringToolsServer.parseAddress("0"))) {
+            SocketAddress address = server.address();
+            List<String> jobs = List.of("getLength\tabc");
+            assertThrows(IllegalArgumentException.class, () -> LoadGenerator.run(address, List.of(), 1, 1, 1));
+            assertThrows(IllegalArgumentException.class, () -> LoadGenerator.run(address, jobs, 0, 1, 1));
+            assertThrows(IllegalArgumentException.class, () -> LoadGenerator.run(address, jobs, 1, 0, 1));
+            assertThrows(IllegalArgumentException.class, () -> LoadGenerator.run(address, jobs, 1, 1, 0));
+
+            // A sender that fails must fail the run, rather than leave the reader waiting for responses forever.
+            List<String> failing = new AbstractList<>() {
+                @Override
+                public String get(int index) {
+                    if (index > 0)
+                        throw new IllegalStateException("Job " + index);
+                    return "getLength\tabc";
+                }
+
+                @Override
+                public int size() {
+                    return 2;
+                }
+            };
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(
+                    IllegalStateException.class, () -> LoadGenerator.run(address, failing, 2, 100, 4)
+            ));
+        }
+    }
+}
@@ -1,8 +1,25 @@
 package test;
 
+import main.CharClass;
+import main.MultiSubstringPattern;
 import main.StringTools;
+import main.SubstringPattern;
+import main.TextBuffer;
+import main.TextRules;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class StringToolsTest {
@@ -30,6 +47,73 @@ class StringToolsTest {
             assertFalse(StringTools.palindromeRecursive(notPalindrome));
     }
 
+    @Test
+    public void testRecursivePalindromeLargeInput() {
+        String half = "ab cd".repeat(2_000_000);
+        String palindrome = half + new StringBuilder(half).reverse();
+        assertTrue(StringTools.palindromeRecursive(palindrome));
+        assertFalse(StringTools.palindromeRecursive(palindrome + "x"));
+    }
+
+    @Test
+    public void testCharSequencePalindrome() {
+        for (String palindrome: palindromes) {
+            assertTrue(StringTools.isPalindrome(palindrome));
+            assertTrue(StringTools.isPalindrome(new StringBuilder(palindrome)));
+            assertTrue(StringTools.isPalindrome(CharBuffer.wrap(palindrome)));
+        }
+        for (String notPalindrome: notPalindromes) {
+            assertFalse(StringTools.isPalindrome(notPalindrome));
+            assertFalse(StringTools.isPalindrome(new StringBuilder(notPalindrome)));
+            assertFalse(StringTools.isPalindrome(CharBuffer.wrap(notPalindrome)));
+        }
+        assertTrue(StringTools.isPalindrome("Ésope reste ici et se reposé"));
+        assertTrue(StringTools.isPalindrome(CharBuffer.wrap("xx Racecar xx", 3, 10)));
+    }
+
+    @Test
+    public void testPalindromicSubstrings() {
+        assertEquals("Step on no pets", StringTools.longestPalindrome("Step on no pets please"));
+        assertEquals("", StringTools.longestPalindrome("   "));
+        assertEquals("a", StringTools.longestPalindrome("abc"));
+        assertEquals(0, StringTools.palindromeCount(""));
+        assertEquals(6, StringTools.palindromeCount("A a a"));
+
+        List<String> maximal = new ArrayList<>();
+        StringTools.maximalPalindromes("Abba c", (start, end) -> maximal.add("Abba c".substring(start, end)));
+        assertEquals(List.of("A", "b", "Abba", "b", "a", "c"), maximal);
+
+        // Compare against checking every substring of the sanitized input on its own.
+        Random random = new Random(233);
+        for (int test = 0; test < 200; test++) {
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--)
+                input.append("aAb ".charAt(random.nextInt(4)));
+            String sanitized = input.toString().replace(" ", "").toLowerCase();
+
+            long count = 0;
+            int longest = 0;
+            for (int start = 0; start < sanitized.length(); start++) {
+                for (int end = start + 1; end <= sanitized.length(); end++) {
+                    if (StringTools.isPalindrome(sanitized.substring(start, end))) {
+                        count++;
+                        longest = Math.max(longest, end - start);
+                    }
+                }
+            }
+            assertEquals(count, StringTools.palindromeCount(input));
+
+            String palindrome = StringTools.longestPalindrome(input);
+            assertEquals(longest, palindrome.replace(" ", "").length());
+            assertTrue(StringTools.isPalindrome(palindrome));
+            StringTools.maximalPalindromes(input, (start, end) -> {
+                assertTrue(StringTools.isPalindrome(input.subSequence(start, end)));
+                assertNotEquals(' ', input.charAt(start));
+                assertNotEquals(' ', input.charAt(end - 1));
+            });
+        }
+    }
+
     @Test
     public void testSubstringInsertion() {
         assertEquals("hello world", StringTools.addSubstring("hello", " world", 4));
@@ -39,6 +123,94 @@ class StringToolsTest {
         assertThrows(IndexOutOfBoundsException.class, () -> StringTools.addSubstring("t", "t", 8));
     }
 
+    @Test
+    public void testBatchedSubstringInsertion() {
+        assertEquals(
+                "Confusing words",
+                StringTools.addSubstrings(
+                        "Coningwor",
+                        List.of(
+                                new StringTools.Insertion(8, "ds"),
+                                new StringTools.Insertion(2, "fus"),
+                                new StringTools.Insertion(5, " ")
+                        )
+                )
+        );
+        assertEquals("abc123", StringTools.addSubstrings("abc", List.of(
+                new StringTools.Insertion(2, "1"), new StringTools.Insertion(3, "2"), new StringTools.Insertion(2, "3")
+        )));
+        assertEquals("3", StringTools.addSubstrings("", List.of(new StringTools.Insertion(0, "3"))));
+        assertEquals("same", StringTools.addSubstrings("same", List.of()));
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> StringTools.addSubstrings(
+                        "t", List.of(new StringTools.Insertion(0, "t"), new StringTools.Insertion(2, "t"))
+                )
+        );
+
+        // Random batches give the same result as inserting every substring on its own, shifting its offset past the
+        // substrings that were inserted before it.
+        Random random = new Random(233);
+        String input = "a man a plan a canal panama";
+        List<StringTools.Insertion> insertions = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            insertions.add(new StringTools.Insertion(random.nextInt(input.length() + 1), Integer.toString(i, 36)));
+
+        TextBuffer expected = new TextBuffer(input);
+        for (int i = 0; i < insertions.size(); i++) {
+            int offset = Math.min(insertions.get(i).index() + 1, input.length());
+            int shift = 0;
+            for (int j = 0; j < i; j++)
+                if (Math.min(insertions.get(j).index() + 1, input.length()) <= offset)
+                    shift += insertions.get(j).substring().length();
+            expected.insert(offset + shift, insertions.get(i).substring());
+        }
+        assertEquals(expected.toString(), StringTools.addSubstrings(input, insertions));
+    }
+
+    @Test
+    public void testTextBuffer() {
+        TextBuffer buffer = new TextBuffer("Coning");
+        assertEquals("Confusing", buffer.addSubstring("fus", 2).toString());
+        assertEquals("3", new TextBuffer().addSubstring("3", 0).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> new TextBuffer().addSubstring("", 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> new TextBuffer("t").addSubstring("t", -1));
+
+        // Random edits give the same text as addSubstring, whether or not the buffer is flattened in between.
+        Random random = new Random(233);
+        String expected = "a man a plan";
+        buffer = new TextBuffer(expected);
+        for (int edit = 0; edit < 2000; edit++) {
+            int index = random.nextInt(expected.length() + 1);
+            String substring = Integer.toString(edit, 36);
+            expected = StringTools.addSubstring(expected, substring, index);
+            buffer.addSubstring(substring, index);
+            if (edit % 100 == 0) {
+                assertEquals(expected, buffer.toString());
+                assertEquals(expected.substring(edit, edit + 10), buffer.subSequence(edit, edit + 10).toString());
+            }
+        }
+        assertEquals(expected.length(), buffer.length());
+        for (int i = 0; i < expected.length(); i++)
+            assertEquals(expected.charAt(i), buffer.charAt(i));
+        assertEquals(expected, buffer.toString());
+
+        // Counting in parallel reads a snapshot of the buffer rather than the buffer itself from several threads.
+        buffer.insert(0, "1");
+        SubstringPattern pattern = SubstringPattern.compile("1");
+        for (StringTools.OccurrenceMode mode : StringTools.OccurrenceMode.values())
+            assertEquals(pattern.count("1" + expected, mode), pattern.parallelCount(buffer, mode, 101));
+
+        // Other operations read the buffer without flattening it.
+        buffer = new TextBuffer("race car").insert(4, "c").delete(4, 5).insert(0, "A ").insert(10, " a");
+        assertTrue(StringTools.isPalindrome(buffer));
+        assertEquals("A race car a", buffer.toString());
+        buffer.delete(0, 2);
+        assertEquals(3, StringTools.occurrenceCounter(buffer, "a", StringTools.OccurrenceMode.OVERLAPPING));
+        assertThrows(IndexOutOfBoundsException.class, () -> new TextBuffer("abc").delete(2, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> new TextBuffer("abc").charAt(3));
+    }
+
     @Test
     public void testAnagramChecker() {
         assertTrue(StringTools.anagramChecker("wonder", "rednow"));
@@ -51,6 +223,65 @@ class StringToolsTest {
         assertFalse(StringTools.anagramChecker(",,,", "  "));
         assertFalse(StringTools.anagramChecker("12", "123"));
         assertFalse(StringTools.anagramChecker("light", "right"));
+
+        // Chars outside of Latin-1 are counted separately from the rest.
+        assertTrue(StringTools.anagramChecker("日本語 ñ", "ñ 語本日"));
+        assertFalse(StringTools.anagramChecker("日本語", "日本本"));
+        assertFalse(StringTools.anagramChecker("aĀ", "ab"));
+
+        StringBuilder manyChars = new StringBuilder();
+        for (char character = 'Ā'; character < 'Ā' + 500; character++)
+            manyChars.append(character).append(character);
+        String manyCharsString = manyChars.toString();
+        assertTrue(StringTools.anagramChecker(manyCharsString, manyChars.reverse().toString()));
+        assertFalse(StringTools.anagramChecker(manyCharsString, manyChars.reverse().replace(0, 1, "a").toString()));
+    }
+
+    @Test
+    public void testAnagramOccurrences() {
+        assertEquals(List.of(0, 6), anagramOccurrences("cbaebabacd", "abc"));
+        assertEquals(List.of(0, 1, 2), anagramOccurrences("abab", "ab"));
+        assertEquals(List.of(0, 1, 2), anagramOccurrences("日本日本", "本日"));
+        assertEquals(List.of(), anagramOccurrences("ab", "abc"));
+        assertEquals(List.of(0, 1, 2), anagramOccurrences("ab", ""));
+
+        // Every match must agree with anagramChecker on the corresponding substring.
+        String text = "players parsley replays sparely";
+        List<Integer> offsets = anagramOccurrences(text, "parsley");
+        for (int i = 0; i + 7 <= text.length(); i++)
+            assertEquals(StringTools.anagramChecker(text.substring(i, i + 7), "parsley"), offsets.contains(i));
+    }
+
+    private static List<Integer> anagramOccurrences(String text, String pattern) {
+        List<Integer> offsets = new ArrayList<>();
+        StringTools.anagramOccurrences(text, pattern, offsets::add);
+        return offsets;
+    }
+
+    @Test
+    public void testAnagramGroups() {
+        List<String> words = List.of(
+                "state", "angel", "taste", "glean", "light", "players", "parsley", "angle", "", ""
+        );
+        List<List<String>> groups = StringTools.anagramGroups(words);
+
+        assertEquals(5, groups.size());
+        assertEquals(words.size(), groups.stream().mapToInt(List::size).sum());
+
+        // Two words must be in the same class exactly when anagramChecker considers them anagrams.
+        for (String word1 : words) {
+            for (String word2 : words) {
+                boolean sameGroup = groups.stream().anyMatch(group -> group.contains(word1) && group.contains(word2));
+                assertEquals(StringTools.anagramChecker(word1, word2), sameGroup);
+            }
+        }
+
+        assertEquals(
+                Set.of(Set.of("state", "taste"), Set.of("ab", "ba")),
+                StringTools.anagramGroups(Stream.of("state", "ab", "taste", "ba")).stream()
+                        .map(Set::copyOf)
+                        .collect(Collectors.toSet())
+        );
     }
 
     @Test
@@ -59,6 +290,108 @@ class StringToolsTest {
         assertEquals(2, StringTools.occurrenceCounter("ha ha ha", " "));
         assertEquals(2, StringTools.occurrenceCounter("this has \"this\" in it twice", "this"));
         assertEquals(9, StringTools.occurrenceCounter("AABAAA AAAA", "A"));
+        assertEquals(1, StringTools.occurrenceCounter("aaab", "aab"));
+        assertEquals(2, StringTools.occurrenceCounter("abababab", "abab"));
+        assertEquals(0, StringTools.occurrenceCounter("ab", "abc"));
+        assertThrows(IllegalArgumentException.class, () -> StringTools.occurrenceCounter("ab", ""));
+    }
+
+    @Test
+    public void testOccurrenceModes() {
+        assertEquals(3, StringTools.occurrenceCounter("abababab", "abab", StringTools.OccurrenceMode.OVERLAPPING));
+        assertEquals(2, StringTools.occurrenceCounter("abababab", "abab", StringTools.OccurrenceMode.NON_OVERLAPPING));
+        assertEquals(3, StringTools.occurrenceCounter("aaaa", "aa", StringTools.OccurrenceMode.OVERLAPPING));
+        assertEquals(2, StringTools.occurrenceCounter("aaaa", "aa", StringTools.OccurrenceMode.NON_OVERLAPPING));
+
+        // A compiled pattern can be reused across inputs.
+        SubstringPattern pattern = SubstringPattern.compile("aab");
+        assertEquals(1, pattern.count("aaab"));
+        assertEquals(2, pattern.count(new StringBuilder("aabaab")));
+        assertEquals(0, pattern.count(""));
+
+        List<Integer> offsets = new ArrayList<>();
+        SubstringPattern.compile("aa").forEachMatch("aaaa", StringTools.OccurrenceMode.OVERLAPPING, offsets::add);
+        assertEquals(List.of(0, 1, 2), offsets);
+    }
+
+    @Test
+    public void testParallelOccurrenceCounter() {
+        // Periodic inputs are the hard case, since occurrences keep crossing chunk boundaries.
+        String[] inputs = new String[] {
+            "a".repeat(3_000_001), "ab".repeat(1_500_000) + "a", "ha ha ha ".repeat(400_000), "aab".repeat(10)
+        };
+        String[] substrings = new String[] {"aa", "aaa", "aba", "abab", "ha ", "aab", "a".repeat(70_000)};
+        for (String input : inputs) {
+            for (String substring : substrings) {
+                for (StringTools.OccurrenceMode mode : StringTools.OccurrenceMode.values()) {
+                    assertEquals(
+                            StringTools.occurrenceCounter(input, substring, mode),
+                            StringTools.parallelOccurrenceCounter(input, substring, mode)
+                    );
+                }
+            }
+        }
+
+        // Odd chunk lengths, so that with periodic inputs an occurrence crosses into nearly every chunk, at an offset
+        // that the count from the start of the chunk never falls in step with.
+        Random random = new Random(233);
+        String[] periodicInputs = new String[] {
+            "a".repeat(100_001), "ab".repeat(50_000) + "a", "aab".repeat(30_000) + "aa", "abaab".repeat(20_000)
+        };
+        for (String input : periodicInputs) {
+            for (String substring : new String[] {"aa", "aaa", "aaaa", "aba", "abab", "aab", "abaaba"}) {
+                SubstringPattern pattern = SubstringPattern.compile(substring);
+                for (int chunkLength : new int[] {1, 3, 7, 4_097, 33_333, 1 + 2 * random.nextInt(20_000)}) {
+                    for (StringTools.OccurrenceMode mode : StringTools.OccurrenceMode.values())
+                        assertEquals(pattern.count(input, mode), pattern.parallelCount(input, mode, chunkLength));
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> SubstringPattern.compile("a").parallelCount("a", null, 0));
+    }
+
+    @Test
+    public void testMultiOccurrenceCounter() {
+        List<String> keywords = List.of("he", "she", "his", "hers", "e", "xyz", "he");
+        String text = "ushers and she said his hehehe";
+        int[] counts = StringTools.multiOccurrenceCounter(text, keywords);
+        int[] overlappingCounts = StringTools.multiOccurrenceCounter(
+                text, keywords, StringTools.OccurrenceMode.OVERLAPPING
+        );
+
+        // Every count must match counting the substring on its own.
+        for (int i = 0; i < keywords.size(); i++) {
+            assertEquals(StringTools.occurrenceCounter(text, keywords.get(i)), counts[i]);
+            assertEquals(
+                    StringTools.occurrenceCounter(text, keywords.get(i), StringTools.OccurrenceMode.OVERLAPPING),
+                    overlappingCounts[i]
+            );
+        }
+        // Non-overlapping by default, like the other counters.
+        assertArrayEquals(new int[] {1, 3}, MultiSubstringPattern.compile("aa", "a").count("aaa"));
+        assertArrayEquals(
+                new int[] {2, 3},
+                MultiSubstringPattern.compile("aa", "a").count("aaa", StringTools.OccurrenceMode.OVERLAPPING)
+        );
+
+        MultiSubstringPattern pattern = MultiSubstringPattern.compile("日本", "本", "aa");
+        assertArrayEquals(new int[] {2, 2, 2}, pattern.count("日本語 日本 aaa", StringTools.OccurrenceMode.OVERLAPPING));
+        assertArrayEquals(new int[] {2, 2, 1}, pattern.count("日本語 日本 aaa"));
+        assertThrows(IllegalArgumentException.class, () -> MultiSubstringPattern.compile("a", ""));
+
+        // So many chars and distinct chars that the transition table can't be an array: 50001 states by 50001 columns,
+        // which overflows an int.
+        StringBuilder wide = new StringBuilder();
+        for (char character = 0x1000; character < 0x1000 + 50_000; character++)
+            wide.append(character);
+        assertThrows(IllegalArgumentException.class, () -> MultiSubstringPattern.compile(wide));
+
+        // Only the states of the trie count towards the size of the table: 3000 copies of 1000 distinct chars would
+        // need 3000001 states by 1001 columns if they shared nothing, but they share a single path of 1001 states.
+        String narrow = wide.substring(0, 1_000);
+        int[] copies = MultiSubstringPattern.compile(Collections.nCopies(3_000, narrow)).count(narrow + narrow);
+        assertEquals(3_000, copies.length);
+        assertEquals(2, copies[2_999]);
     }
 
     @Test
@@ -69,5 +402,73 @@ class StringToolsTest {
         assertEquals("12 12 12", StringTools.sentenceReversal("12 12 12"));
         assertEquals("This, is a test!", StringTools.sentenceReversal("test a is This,!"));
         assertThrows(StringTools.InvalidSentenceException.class, () -> StringTools.sentenceReversal("   "));
+        assertThrows(StringTools.InvalidSentenceException.class, () -> StringTools.sentenceReversal("trailing "));
+        assertThrows(StringTools.InvalidSentenceException.class, () -> StringTools.sentenceReversal("a ! b"));
+    }
+
+    @Test
+    public void streamingSentenceReversal() throws StringTools.InvalidSentenceException, IOException {
+        StringWriter output = new StringWriter();
+        StringTools.sentenceReversal(new StringBuilder("This is a test."), output);
+        assertEquals("test a is This.", output.toString());
+
+        // Nothing is written for an invalid sentence.
+        StringWriter invalidOutput = new StringWriter();
+        assertThrows(
+                StringTools.InvalidSentenceException.class,
+                () -> StringTools.sentenceReversal("This is  invalid", invalidOutput)
+        );
+        assertEquals("", invalidOutput.toString());
+
+        StringBuilder document = new StringBuilder();
+        StringTools.sentenceReversals(
+                new StringReader("This is a test. Wo.rds are reversed!\r\n\n12 12 12\nIs it? Yes"), document
+        );
+        assertEquals("test a is This. reversed are Words!\r\n\n12 12 12\nit Is? Yes", document.toString());
+    }
+
+    @Test
+    public void textRules() throws StringTools.InvalidSentenceException, IOException {
+        CharClass whitespace = CharClass.matching(Character::isWhitespace);
+        assertTrue(whitespace.contains('\t'));
+        assertTrue(whitespace.contains(0x2003));
+        assertFalse(whitespace.contains('a'));
+
+        CharClass emoji = CharClass.of("😀");
+        assertTrue(emoji.contains(0x1F600));
+        assertFalse(emoji.contains("😀".charAt(0)));
+        assertTrue(CharClass.NONE.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> CharClass.ofCodePoints(-1));
+
+        TextRules ignoring = TextRules.DEFAULT.withIgnorable(CharClass.of("-'😀"));
+        assertTrue(StringTools.isPalindrome("A-b-a 😀", ignoring));
+        assertFalse(StringTools.isPalindrome("A-b-a 😀"));
+        assertTrue(StringTools.palindromeRecursive("Ab😀-'a", ignoring));
+        assertTrue(StringTools.anagramChecker("don't", "t-nod", ignoring));
+        assertFalse(StringTools.anagramChecker("don't", "t-nod"));
+
+        StringBuilder output = new StringBuilder();
+        StringTools.sentenceReversal(
+                "one\ttwo three;",
+                output,
+                TextRules.DEFAULT.withSeparators(whitespace).withPunctuation(CharClass.of(";"))
+        );
+        assertEquals("three\ttwo one;", output.toString());
+
+        output.setLength(0);
+        StringTools.sentenceReversal("a😀b😀c!", output, TextRules.DEFAULT.withSeparators(emoji));
+        assertEquals("c😀b😀a!", output.toString());
+
+        output.setLength(0);
+        StringTools.sentenceReversals(
+                new StringReader("one two;\tthree four"),
+                output,
+                TextRules.DEFAULT.withSeparators(whitespace).withPunctuation(CharClass.of(";"))
+        );
+        assertEquals("two one;\tfour three", output.toString());
+        assertThrows(
+                StringTools.InvalidSentenceException.class,
+                () -> StringTools.sentenceReversal("a - b", new StringBuilder(), ignoring)
+        );
     }
-}
\ No newline at end of file
+}